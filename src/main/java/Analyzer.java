@@ -1,11 +1,32 @@
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Map;
 
 public class Analyzer {
 
+    // ====================== 共享解析引擎 ======================
+    // ObjectMapper 配置完成后线程安全；复用它才能复用 Jackson 内部的（反）序列化器缓存。
+    // 各响应类型预先构建 ObjectReader（不可变、线程安全），避免每次解析重新查找类型信息。
+    static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final ObjectReader QAX_READER             = MAPPER.readerFor(QAXResponseData.class);
+    private static final ObjectReader QAX_DOMAIN_READER      = MAPPER.readerFor(QAXDomainCheckResponse.class);
+    private static final ObjectReader QAX_IP_READER          = MAPPER.readerFor(QAXIpReputationResponse.class);
+    private static final ObjectReader VIRUSTOTAL_READER      = MAPPER.readerFor(VirusTotalResponse.class);
+    private static final ObjectReader THREATBOOK_READER      = MAPPER.readerFor(ThreatBookResponse.class);
+    private static final ObjectReader IPQS_READER            = MAPPER.readerFor(IPQSResponse.class);
+    private static final ObjectReader VT_STATS_READER        = MAPPER.readerFor(LastAnalysisStats.class);
+    private static final ObjectReader VT_RESULTS_READER      =
+            MAPPER.readerFor(new TypeReference<Map<String, EngineResult>>() {});
+
     // ====================== QAX 解析 ======================
     @JsonIgnoreProperties(ignoreUnknown = true)
     public static class QAXResponseData {
@@ -39,8 +60,12 @@ public class Analyzer {
      * 解析 QAX JSON
      */
     public static QAXResponseData QAX_ParseJson(String json) throws Exception {
-        ObjectMapper mapper = new ObjectMapper();
-        return mapper.readValue(json, QAXResponseData.class);
+        return QAX_READER.readValue(json);
+    }
+
+    /** 流式版本：直接从响应流解析，不生成中间 String */
+    public static QAXResponseData QAX_ParseJson(InputStream in) throws IOException {
+        return QAX_READER.readValue(in);
     }
 
     // ====================== VirusTotal 解析 ======================
@@ -152,8 +177,12 @@ public class Analyzer {
 
     /** 解析 QianxinTIP.AnalysisDomain(JSON) */
     public static QAXDomainCheckResponse QAX_AnalysisDomain_ParseJson(String json) throws Exception {
-        ObjectMapper mapper = new ObjectMapper();
-        return mapper.readValue(json, QAXDomainCheckResponse.class);
+        return QAX_DOMAIN_READER.readValue(json);
+    }
+
+    /** 流式版本：直接从响应流解析，不生成中间 String */
+    public static QAXDomainCheckResponse QAX_AnalysisDomain_ParseJson(InputStream in) throws IOException {
+        return QAX_DOMAIN_READER.readValue(in);
     }
 
 
@@ -306,8 +335,12 @@ public class Analyzer {
 
     /** 解析 QianxinTIP.AnalysisIP(JSON) */
     public static QAXIpReputationResponse QAX_AnalysisIP_ParseJson(String json) throws Exception {
-        ObjectMapper mapper = new ObjectMapper();
-        return mapper.readValue(json, QAXIpReputationResponse.class);
+        return QAX_IP_READER.readValue(json);
+    }
+
+    /** 流式版本：直接从响应流解析，不生成中间 String */
+    public static QAXIpReputationResponse QAX_AnalysisIP_ParseJson(InputStream in) throws IOException {
+        return QAX_IP_READER.readValue(in);
     }
 
     /**
@@ -318,8 +351,77 @@ public class Analyzer {
      * @throws Exception 解析失败抛出异常
      */
     public static VirusTotalResponse VirusTotal_ParseJson(String json) throws Exception {
-        ObjectMapper mapper = new ObjectMapper();
-        return mapper.readValue(json, VirusTotalResponse.class);
+        return VIRUSTOTAL_READER.readValue(json);
+    }
+
+    /** 流式版本：直接从响应流解析，不生成中间 String */
+    public static VirusTotalResponse VirusTotal_ParseJson(InputStream in) throws IOException {
+        return VIRUSTOTAL_READER.readValue(in);
+    }
+
+    /**
+     * VirusTotal 专用的选择性流式解析：只绑定 data.attributes 下用到的
+     * last_analysis_stats / last_analysis_results / reputation，
+     * whois、证书、DNS 记录等其它子树直接 skipChildren()，三项取齐后立即返回，
+     * 不再对剩余文档做分词。结果结构与 VirusTotal_ParseJson 一致（未用到的字段为空）。
+     */
+    public static VirusTotalResponse VirusTotal_ExtractJson(InputStream in) throws IOException {
+        VirusTotalResponse resp = new VirusTotalResponse();
+        try (JsonParser p = MAPPER.getFactory().createParser(in)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) return resp;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String name = p.currentName();
+                JsonToken t = p.nextToken();
+                if ("data".equals(name) && t == JsonToken.START_OBJECT) {
+                    resp.data = new Data();
+                    if (extractVtData(p, resp.data)) return resp; // 关键字段已取齐
+                } else {
+                    p.skipChildren();
+                }
+            }
+        }
+        return resp;
+    }
+
+    /** 解析 data 对象；attributes 中三个字段全部取到时返回 true（调用方可提前结束） */
+    private static boolean extractVtData(JsonParser p, Data data) throws IOException {
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.currentName();
+            JsonToken t = p.nextToken();
+            if ("attributes".equals(name) && t == JsonToken.START_OBJECT) {
+                data.attributes = new Attributes();
+                if (extractVtAttributes(p, data.attributes)) return true;
+            } else if ("id".equals(name) && t == JsonToken.VALUE_STRING) {
+                data.id = p.getText();
+            } else if ("type".equals(name) && t == JsonToken.VALUE_STRING) {
+                data.type = p.getText();
+            } else {
+                p.skipChildren();
+            }
+        }
+        return false;
+    }
+
+    private static boolean extractVtAttributes(JsonParser p, Attributes attrs) throws IOException {
+        boolean stats = false, results = false, reputation = false;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.currentName();
+            JsonToken t = p.nextToken();
+            if ("last_analysis_stats".equals(name) && t == JsonToken.START_OBJECT) {
+                attrs.last_analysis_stats = VT_STATS_READER.readValue(p);
+                stats = true;
+            } else if ("last_analysis_results".equals(name) && t == JsonToken.START_OBJECT) {
+                attrs.last_analysis_results = VT_RESULTS_READER.readValue(p);
+                results = true;
+            } else if ("reputation".equals(name) && t.isNumeric()) {
+                attrs.reputation = p.getIntValue();
+                reputation = true;
+            } else {
+                p.skipChildren();
+            }
+            if (stats && results && reputation) return true;
+        }
+        return false;
     }
 
     // ====================== ThreatBook 解析 ======================
@@ -385,8 +487,12 @@ public class Analyzer {
 
     /** 解析 ThreatBook JSON 字符串为对象 */
     public static ThreatBookResponse ThreatBook_ParseJson(String json) throws Exception {
-        ObjectMapper mapper = new ObjectMapper();
-        return mapper.readValue(json, ThreatBookResponse.class);
+        return THREATBOOK_READER.readValue(json);
+    }
+
+    /** 流式版本：直接从响应流解析，不生成中间 String */
+    public static ThreatBookResponse ThreatBook_ParseJson(InputStream in) throws IOException {
+        return THREATBOOK_READER.readValue(in);
     }
 
 
@@ -445,7 +551,11 @@ public class Analyzer {
 
     /** 解析 IPQualityScore 的 queryIp JSON 字符串为对象 */
     public static IPQSResponse IPQS_ParseJson(String json) throws Exception {
-        ObjectMapper mapper = new ObjectMapper();
-        return mapper.readValue(json, IPQSResponse.class);
+        return IPQS_READER.readValue(json);
+    }
+
+    /** 流式版本：直接从响应流解析，不生成中间 String */
+    public static IPQSResponse IPQS_ParseJson(InputStream in) throws IOException {
+        return IPQS_READER.readValue(in);
     }
 }
@@ -0,0 +1,351 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 命令行批量模式：从文件或 stdin 逐行读取 IP / 域名 / URL，并发查询各情报源，
+ * 按完成顺序把结论以 JSONL 或 CSV 输出到 stdout；进度与吞吐输出到 stderr。
+ * 运行期间 System.out 被换成 stderr，stdout 上只有记录：各处的日志（例如加载 Key 的提示）不会混进 CSV / JSONL。
+ *
+ * 用法：
+ *   java -jar VirusTool.jar --batch iocs.txt [--format jsonl|csv] [--concurrency 8]
+ *                           [--providers qax,vt,tb,ipqs]
+ *   --batch -            从 stdin 读取
+ *
+ * 输入逐行流式读取，同时在途的指标数受 --concurrency 限制，内存占用与文件行数无关。
+ * 空行和 # 开头的行会被跳过；一行里有多列时只取第一列（兼容 SIEM 导出的 CSV）。
+ */
+public final class BatchRunner {
+
+    private static final String CONF_PATH = "conf.ini";
+
+    private static final String[] CSV_COLUMNS = {
+            "indicator", "type",
+            "qax_alerts", "qax_risk", "qax_malicious_type",
+            "vt_malicious", "vt_suspicious", "vt_harmless", "vt_reputation",
+            "tb_severity", "tb_malicious", "tb_judgments",
+            "ipqs_fraud_score", "ipqs_proxy", "ipqs_vpn", "ipqs_tor",
+            "cached", "errors"
+    };
+
+    private final String source;
+    private final boolean csv;
+    private final int concurrency;
+    private final Set<String> providers;
+
+    private final Writer out;
+    private final AtomicLong read = new AtomicLong();
+    private final AtomicLong done = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private long startNanos;
+
+    private BatchRunner(String source, boolean csv, int concurrency, Set<String> providers, PrintStream records) {
+        this.out = new BufferedWriter(new OutputStreamWriter(records, StandardCharsets.UTF_8));
+        this.source = source;
+        this.csv = csv;
+        this.concurrency = concurrency;
+        this.providers = providers;
+    }
+
+    /** 命令行参数里是否包含 --batch */
+    public static boolean isBatch(String[] args) {
+        return args != null && Arrays.asList(args).contains("--batch");
+    }
+
+    /** 解析参数并运行；返回进程退出码 */
+    public static int run(String[] args) {
+        String source = null;
+        String format = "jsonl";
+        int concurrency = 8;
+        Set<String> providers = new LinkedHashSet<>(Arrays.asList("qax", "vt", "tb", "ipqs"));
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--batch":       source = args[++i]; break;
+                    case "--format":      format = args[++i].toLowerCase(Locale.ROOT); break;
+                    case "--concurrency": concurrency = Math.max(1, Integer.parseInt(args[++i])); break;
+                    case "--providers":
+                        providers.clear();
+                        for (String p : args[++i].split(",")) {
+                            if (!p.trim().isEmpty()) providers.add(p.trim().toLowerCase(Locale.ROOT));
+                        }
+                        break;
+                    default:
+                        return usage("Unknown option: " + args[i]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            return usage("Invalid arguments");
+        }
+        if (source == null) return usage("Missing --batch <file|->");
+        if (!"jsonl".equals(format) && !"csv".equals(format)) return usage("Unknown format: " + format);
+        if (!Files.isRegularFile(Paths.get(CONF_PATH))) {
+            // 各情报源在类加载时从 conf.ini 读取 Key；界面模式会自动生成模板，这里直接报错
+            System.err.println("Error: " + CONF_PATH + " not found (run the UI once or create it with the API keys)");
+            return 1;
+        }
+
+        // 记录写到原来的 stdout；其余所有 System.out 输出改到 stderr
+        PrintStream records = System.out;
+        System.setOut(System.err);
+        try {
+            return new BatchRunner(source, "csv".equals(format), concurrency, providers, records).process();
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+            return 1;
+        } finally {
+            System.setOut(records);
+        }
+    }
+
+    private static int usage(String msg) {
+        System.err.println("Error: " + msg);
+        System.err.println("Usage: --batch <file|-> [--format jsonl|csv] [--concurrency N] [--providers qax,vt,tb,ipqs]");
+        return 2;
+    }
+
+    /* ==============================
+     * 1) 主循环
+     * ============================== */
+
+    private int process() throws IOException {
+        startNanos = System.nanoTime();
+        Semaphore inFlight = new Semaphore(concurrency);
+        ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "batch-progress");
+            t.setDaemon(true);
+            return t;
+        });
+        ticker.scheduleAtFixedRate(() -> progress(false), 2, 2, TimeUnit.SECONDS);
+
+        if (csv) writeLine(String.join(",", CSV_COLUMNS));
+
+        try (BufferedReader in = "-".equals(source)
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Paths.get(source), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String indicator = firstField(line);
+                if (indicator.isEmpty()) continue;
+                read.incrementAndGet();
+
+                inFlight.acquireUninterruptibly();
+                CompletableFuture<Map<String, Object>> f;
+                try {
+                    f = check(indicator);
+                } catch (RuntimeException | Error e) {
+                    f = CompletableFuture.failedFuture(e);
+                }
+                f.whenComplete((row, ex) -> {
+                    try {
+                        writeRow(row != null ? row : errorRow(indicator, ex));
+                    } finally {
+                        done.incrementAndGet();
+                        inFlight.release();
+                    }
+                });
+            }
+        }
+
+        // 等待在途请求全部完成
+        inFlight.acquireUninterruptibly(concurrency);
+        ticker.shutdownNow();
+        out.flush();
+        progress(true);
+        return 0;
+    }
+
+    private static String firstField(String line) {
+        String s = line.trim();
+        if (s.isEmpty() || s.startsWith("#")) return "";
+        int cut = s.length();
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == ',' || c == '\t' || c == ' ' || c == ';') {
+                cut = i;
+                break;
+            }
+        }
+        s = s.substring(0, cut).trim();
+        if (s.length() >= 2 && s.startsWith("\"") && s.endsWith("\"")) s = s.substring(1, s.length() - 1);
+        return s;
+    }
+
+    /* ==============================
+     * 2) 单个指标：各情报源并发查询
+     * ============================== */
+
+    private CompletableFuture<Map<String, Object>> check(String raw) {
+        final String host = WorkFrame.deriveDomainForVT(raw);
+        final String type = WorkFrame.detectType(host);
+        final boolean ip = "IPv4".equals(type) || "IPv6".equals(type);
+
+        List<CompletableFuture<ProviderResult>> calls = new ArrayList<>();
+        if (providers.contains("qax")) calls.add(QianxinTIP.SendVirusDetectionAsync(raw));
+        if (providers.contains("vt")) {
+            calls.add(ip ? VirusTotal.getIpReportAsync(host) : VirusTotal.getDomainReportAsync(host));
+        }
+        if (providers.contains("tb")) {
+            calls.add(ip ? ThreatBook.AnalysisIPAsync(host) : ThreatBook.QueryDNSAsync(host));
+        }
+        if (providers.contains("ipqs") && ip) calls.add(IPQualityScore.queryIpAsync(host));
+
+        return CompletableFuture.allOf(calls.toArray(new CompletableFuture<?>[0])).handle((v, ex) -> {
+            Map<String, Object> row = newRow(raw, type);
+            List<String> errors = new ArrayList<>();
+            List<String> cached = new ArrayList<>();
+            for (CompletableFuture<ProviderResult> f : calls) {
+                ProviderResult r = f.getNow(null);
+                if (r == null) continue;
+                if (!r.isOk()) {
+                    errors.add(r.provider + ": " + r.error);
+                    continue;
+                }
+                if (r.cached) cached.add(r.provider);
+                summarize(row, r);
+            }
+            if (!cached.isEmpty()) row.put("cached", String.join("/", cached));
+            if (!errors.isEmpty()) {
+                row.put("errors", String.join("; ", errors));
+                failed.incrementAndGet();
+            }
+            return row;
+        });
+    }
+
+    private static Map<String, Object> newRow(String indicator, String type) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("indicator", indicator);
+        row.put("type", type);
+        return row;
+    }
+
+    private Map<String, Object> errorRow(String indicator, Throwable ex) {
+        failed.incrementAndGet();
+        Map<String, Object> row = newRow(indicator, "");
+        Throwable c = ProviderResult.unwrap(ex);
+        row.put("errors", "Exception: " + ProviderResult.describe(c));
+        return row;
+    }
+
+    /** 把各情报源的模型压缩为几列结论 */
+    private static void summarize(Map<String, Object> row, ProviderResult r) {
+        Object m = r.model;
+        if (m instanceof Analyzer.QAXResponseData) {
+            Analyzer.QAXResponseData q = (Analyzer.QAXResponseData) m;
+            Set<String> risk = new LinkedHashSet<>();
+            Set<String> types = new LinkedHashSet<>();
+            int alerts = 0;
+            if (q.data != null) {
+                for (Analyzer.AlertData a : q.data) {
+                    if (a == null) continue;
+                    alerts++;
+                    if (a.risk != null && !a.risk.isEmpty()) risk.add(a.risk);
+                    if (a.malicious_type != null && !a.malicious_type.isEmpty()) types.add(a.malicious_type);
+                }
+            }
+            row.put("qax_alerts", alerts);
+            row.put("qax_risk", String.join("/", risk));
+            row.put("qax_malicious_type", String.join("/", types));
+        } else if (m instanceof Analyzer.VirusTotalResponse) {
+            Analyzer.VirusTotalResponse v = (Analyzer.VirusTotalResponse) m;
+            if (v.data != null && v.data.attributes != null) {
+                Analyzer.LastAnalysisStats s = v.data.attributes.last_analysis_stats;
+                if (s != null) {
+                    row.put("vt_malicious", s.malicious);
+                    row.put("vt_suspicious", s.suspicious);
+                    row.put("vt_harmless", s.harmless);
+                }
+                row.put("vt_reputation", v.data.attributes.reputation);
+            }
+        } else if (m instanceof Analyzer.ThreatBookResponse) {
+            Analyzer.ThreatBookResponse t = (Analyzer.ThreatBookResponse) m;
+            if (t.data == null) return;
+            if (t.data.domains != null && !t.data.domains.isEmpty()) {
+                Analyzer.ThreatBookDomain d = t.data.domains.values().iterator().next();
+                putThreatBook(row, d.severity, d.is_malicious, d.judgments);
+            } else if (t.data.ips != null && !t.data.ips.isEmpty()) {
+                Analyzer.ThreatBookIP d = t.data.ips.values().iterator().next();
+                putThreatBook(row, d.severity, d.is_malicious, d.judgments);
+            }
+        } else if (m instanceof Analyzer.IPQSResponse) {
+            Analyzer.IPQSResponse q = (Analyzer.IPQSResponse) m;
+            row.put("ipqs_fraud_score", q.fraud_score);
+            row.put("ipqs_proxy", q.proxy);
+            row.put("ipqs_vpn", q.vpn);
+            row.put("ipqs_tor", q.tor);
+        }
+    }
+
+    private static void putThreatBook(Map<String, Object> row, String severity, boolean malicious,
+                                      List<String> judgments) {
+        row.put("tb_severity", severity);
+        row.put("tb_malicious", malicious);
+        row.put("tb_judgments", judgments == null ? "" : String.join("/", judgments));
+    }
+
+    /* ==============================
+     * 3) 输出
+     * ============================== */
+
+    private void writeRow(Map<String, Object> row) {
+        try {
+            if (!csv) {
+                writeLine(Analyzer.MAPPER.writeValueAsString(row));
+                return;
+            }
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < CSV_COLUMNS.length; i++) {
+                if (i > 0) sb.append(',');
+                Object v = row.get(CSV_COLUMNS[i]);
+                sb.append(csvEscape(v == null ? "" : String.valueOf(v)));
+            }
+            writeLine(sb.toString());
+        } catch (IOException e) {
+            System.err.println("Error: write failed: " + e.getMessage());
+        }
+    }
+
+    private synchronized void writeLine(String line) throws IOException {
+        out.write(line);
+        out.write('\n');
+        out.flush();
+    }
+
+    private static String csvEscape(String s) {
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0 && s.indexOf('\r') < 0) return s;
+        return "\"" + s.replace("\"", "\"\"") + "\"";
+    }
+
+    private void progress(boolean last) {
+        double sec = Math.max(0.001, (System.nanoTime() - startNanos) / 1e9);
+        long d = done.get();
+        String queues = last ? "" : RateLimiter.describeQueues();
+        String open = last ? "" : CircuitBreaker.describeOpen();
+        System.err.printf(Locale.ROOT, "[batch] %s %d/%d done, %d with errors, %.1f/s, %.0fs elapsed%s%n",
+                last ? "finished:" : "progress:", d, read.get(), failed.get(), d / sec, sec,
+                (queues.isEmpty() ? "" : ", rate limit: " + queues)
+                        + (open.isEmpty() ? "" : ", short-circuited: " + open));
+    }
+}
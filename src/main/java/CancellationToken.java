@@ -0,0 +1,80 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * 一次检索的取消令牌。WorkFrame 在发起查询时通过 callWith 把令牌绑定到当前线程，
+ * ProviderHttp.call 取出后一路传给发送/重试/读流；cancel() 会中止在途的 HTTP 交换
+ * （取消 sendAsync 的 future、关闭正在读取的响应流），并让尚未发出的请求与重试直接返回 "Error: cancelled"。
+ */
+public final class CancellationToken {
+
+    /** 永不取消（未绑定令牌的调用，例如批量模式） */
+    public static final CancellationToken NONE = new CancellationToken();
+
+    private static final ThreadLocal<CancellationToken> CURRENT = new ThreadLocal<>();
+
+    private volatile boolean cancelled;
+    private final List<Runnable> hooks = new ArrayList<>();
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /** 取消并执行已注册的回调（只执行一次） */
+    public void cancel() {
+        if (this == NONE) return;
+        List<Runnable> toRun;
+        synchronized (this) {
+            if (cancelled) return;
+            cancelled = true;
+            toRun = new ArrayList<>(hooks);
+            hooks.clear();
+        }
+        for (Runnable r : toRun) {
+            try {
+                r.run();
+            } catch (RuntimeException e) {
+                System.err.println("[Cancel] hook failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 注册取消回调；已取消时立即在当前线程执行。
+     * 返回注销句柄：操作正常结束后调用，避免令牌持有已完成请求的引用。
+     */
+    public Runnable onCancel(Runnable hook) {
+        if (this == NONE) return () -> {};
+        synchronized (this) {
+            if (!cancelled) {
+                hooks.add(hook);
+                return () -> {
+                    synchronized (CancellationToken.this) {
+                        hooks.remove(hook);
+                    }
+                };
+            }
+        }
+        hook.run();
+        return () -> {};
+    }
+
+    /** 当前线程绑定的令牌；没有时返回 NONE */
+    public static CancellationToken current() {
+        CancellationToken t = CURRENT.get();
+        return t == null ? NONE : t;
+    }
+
+    /** 在绑定本令牌的情况下执行 work（work 内发起的情报源查询都受本令牌控制） */
+    public <T> T callWith(Callable<T> work) throws Exception {
+        CancellationToken prev = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return work.call();
+        } finally {
+            if (prev == null) CURRENT.remove();
+            else CURRENT.set(prev);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 按 情报源/接口 的熔断器。上游变慢或不可用时快速失败，避免每次检索都等满超时。
+ *
+ *   CLOSED    正常放行；连续失败达到阈值，或最近 N 次调用的 p90 收发耗时超过上限时 → OPEN
+ *   OPEN      直接返回错误，不发请求；经过 CB_OPEN_SEC 后 → HALF_OPEN
+ *   HALF_OPEN 只放行一个试探请求：成功 → CLOSED，失败 → 重新 OPEN
+ *
+ * 计为失败的是网络层异常（超时、连接失败）和 5xx；4xx / 429 说明上游仍在正常应答，不计入。
+ * 没有发出请求的结果（本地限流拒绝、检索取消）既不算成功也不算失败。
+ *
+ * conf.ini:
+ *   CB_FAILURE_THRESHOLD  连续失败次数（默认 5）
+ *   CB_SLOW_MS            p90 耗时上限（毫秒，默认 8000；0 表示不按耗时熔断）
+ *   CB_WINDOW             统计耗时的最近调用数（默认 20，至少 10 个样本才判断）
+ *   CB_OPEN_SEC           熔断持续时间（默认 30）
+ */
+public final class CircuitBreaker {
+
+    private static final String INI_PATH = "conf.ini";
+    private static final int MIN_SAMPLES = 10;
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private static volatile int failureThreshold = 5;
+    private static volatile long slowMs = 8000;
+    private static volatile int window = 20;
+    private static volatile long openMillis = 30_000;
+
+    private static final Map<String, Breaker> BREAKERS = new ConcurrentHashMap<>();
+
+    static {
+        loadFromIni(INI_PATH);
+    }
+
+    private CircuitBreaker() {}
+
+    /** 单个 情报源/接口 的状态 */
+    private static final class Breaker {
+        State state = State.CLOSED;
+        int consecutiveFailures;
+        long openedAt;
+        boolean probing;                 // HALF_OPEN 时是否已有试探请求在途
+        String reason = "";
+        final long[] latencies = new long[Math.max(MIN_SAMPLES, window)];
+        int samples;
+        int next;
+
+        /** 是否放行本次请求 */
+        synchronized boolean tryAcquire() {
+            if (state == State.OPEN) {
+                if (System.currentTimeMillis() - openedAt < openMillis) return false;
+                state = State.HALF_OPEN;
+                probing = false;
+            }
+            if (state == State.HALF_OPEN) {
+                if (probing) return false;
+                probing = true;
+            }
+            return true;
+        }
+
+        /** 本次放行没有真正访问上游（本地拒绝、已取消）：只归还试探名额，不记录结果 */
+        synchronized void release() {
+            if (state == State.HALF_OPEN) probing = false;
+        }
+
+        synchronized void onResult(boolean failed, long elapsedMs) {
+            if (state == State.HALF_OPEN) {
+                probing = false;
+                if (failed) {
+                    open("probe failed");
+                } else {
+                    state = State.CLOSED;
+                    consecutiveFailures = 0;
+                    samples = 0;
+                    next = 0;
+                }
+                return;
+            }
+            if (state == State.OPEN) return; // 打开前已发出的请求，结果不再影响状态
+
+            latencies[next] = elapsedMs;
+            next = (next + 1) % latencies.length;
+            samples = Math.min(samples + 1, latencies.length);
+
+            consecutiveFailures = failed ? consecutiveFailures + 1 : 0;
+            if (consecutiveFailures >= failureThreshold) {
+                open(consecutiveFailures + " consecutive failures");
+                return;
+            }
+            if (slowMs > 0 && samples >= MIN_SAMPLES) {
+                long p90 = p90();
+                if (p90 >= slowMs) open("p90 " + p90 + "ms");
+            }
+        }
+
+        private long p90() {
+            long[] copy = Arrays.copyOf(latencies, samples);
+            Arrays.sort(copy);
+            return copy[(int) Math.ceil(samples * 0.9) - 1];
+        }
+
+        private void open(String why) {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+            reason = why;
+            consecutiveFailures = 0;
+            samples = 0;
+            next = 0;
+        }
+
+        synchronized long remainingOpenMillis() {
+            return state == State.OPEN ? Math.max(0, openMillis - (System.currentTimeMillis() - openedAt)) : 0;
+        }
+    }
+
+    /* ==============================
+     * 1) 请求入口
+     * ============================== */
+
+    /** 熔断打开时直接返回错误结果；否则执行 call 并按结果更新状态 */
+    public static CompletableFuture<ProviderResult> guard(String provider, String endpoint, String query,
+                                                          Supplier<CompletableFuture<ProviderResult>> call) {
+        Breaker b = breakerFor(provider, endpoint);
+        if (!b.tryAcquire()) {
+            long sec = (b.remainingOpenMillis() + 999) / 1000;
+            return CompletableFuture.completedFuture(ProviderResult.rejected(provider, endpoint, query,
+                    "Error: " + provider + " unavailable (circuit open"
+                            + (sec > 0 ? ", retry in " + sec + "s" : "") + ")"));
+        }
+        CompletableFuture<ProviderResult> f;
+        try {
+            f = call.get();
+        } catch (RuntimeException e) {
+            b.release();
+            throw e;
+        }
+        return f.whenComplete((r, ex) -> {
+            if (r != null && r.attempts == 0 && r.cause == null) {
+                // 本地拒绝（限流队列满、每日配额）或已取消，没有真正访问上游：
+                // 不重置连续失败计数、不加入耗时样本，HALF_OPEN 下也不据此关闭熔断
+                b.release();
+                return;
+            }
+            // 耗时样本只取最后一次尝试的收发时间：限流排队与重试退避是本地等待，不说明上游变慢
+            b.onResult(ex != null || isFailure(r), r == null ? 0 : r.latencyMs);
+        });
+    }
+
+    /** 上游健康问题：网络层异常或 5xx */
+    private static boolean isFailure(ProviderResult r) {
+        if (r == null) return true;
+        if (r.statusCode >= 500) return true;
+        return r.statusCode < 0 && r.cause instanceof IOException;
+    }
+
+    private static Breaker breakerFor(String provider, String endpoint) {
+        return BREAKERS.computeIfAbsent(provider + "/" + endpoint, k -> new Breaker());
+    }
+
+    /* ==============================
+     * 2) 状态（供界面展示）
+     * ============================== */
+
+    public static State state(String provider, String endpoint) {
+        Breaker b = BREAKERS.get(provider + "/" + endpoint);
+        if (b == null) return State.CLOSED;
+        synchronized (b) {
+            return b.state;
+        }
+    }
+
+    /** 当前未处于 CLOSED 的接口，例如 "QAX/compromise open 25s (5 consecutive failures)"；全部正常时返回空串 */
+    public static String describeOpen() {
+        List<String> parts = new ArrayList<>();
+        for (Map.Entry<String, Breaker> e : new TreeMap<>(BREAKERS).entrySet()) {
+            Breaker b = e.getValue();
+            synchronized (b) {
+                if (b.state == State.CLOSED) continue;
+                if (b.state == State.HALF_OPEN) {
+                    parts.add(e.getKey() + " probing");
+                } else {
+                    long sec = (b.remainingOpenMillis() + 999) / 1000;
+                    parts.add(e.getKey() + " open " + sec + "s (" + b.reason + ")");
+                }
+            }
+        }
+        return String.join(", ", parts);
+    }
+
+    /* ==============================
+     * 3) 配置
+     * ============================== */
+
+    private static void loadFromIni(String path) {
+        Properties p = new Properties();
+        try (FileInputStream in = new FileInputStream(path)) {
+            p.load(in);
+        } catch (Exception ignore) {
+            // 没有 conf.ini 时使用默认值
+        }
+        failureThreshold = (int) Math.max(1, parseLong(p.getProperty("CB_FAILURE_THRESHOLD"), 5));
+        slowMs = Math.max(0, parseLong(p.getProperty("CB_SLOW_MS"), 8000));
+        window = (int) Math.max(MIN_SAMPLES, parseLong(p.getProperty("CB_WINDOW"), 20));
+        openMillis = Math.max(1, parseLong(p.getProperty("CB_OPEN_SEC"), 30)) * 1000L;
+    }
+
+    private static long parseLong(String s, long def) {
+        if (s == null || s.trim().isEmpty()) return def;
+        try {
+            return Long.parseLong(s.trim());
+        } catch (Exception e) {
+            return def;
+        }
+    }
+}
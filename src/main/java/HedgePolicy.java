@@ -0,0 +1,190 @@
+import java.io.FileInputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 对冲请求（hedged request）的策略与统计（由 ProviderHttp 调用）。
+ * 请求在该 情报源/接口 观测到的 p90 响应时间内还没有返回时，再发一个相同的请求，先返回者胜出、另一个取消。
+ *
+ * 预算：每个普通请求为该情报源积累 HEDGE_BUDGET_PERCENT% 个对冲额度（最多攒 HEDGE_MAX_CREDIT 个），
+ * 每次对冲消耗 1 个；另外对冲请求必须能立即拿到限流令牌（RateLimiter.tryAcquire），不会排队、不会超配额。
+ * 样本不足 MIN_SAMPLES 时不对冲。
+ *
+ * conf.ini:
+ *   HEDGE_PROVIDERS        启用对冲的情报源，逗号分隔，如 VirusTotal,ThreatBook,QAX（默认空 = 关闭）
+ *   HEDGE_BUDGET_PERCENT   对冲请求占普通请求的比例上限（默认 10）
+ *   HEDGE_MIN_DELAY_MS     对冲等待下限（默认 200）
+ */
+public final class HedgePolicy {
+
+    private static final String INI_PATH = "conf.ini";
+    private static final int WINDOW = 50;
+    private static final int MIN_SAMPLES = 20;
+    private static final double HEDGE_MAX_CREDIT = 5;
+
+    private static final Set<String> ENABLED = new HashSet<>();
+    private static volatile double budgetRatio = 0.10;
+    private static volatile long minDelayMs = 200;
+
+    private static final Map<String, Latency> LATENCY = new ConcurrentHashMap<>();
+    private static final Map<String, Budget> BUDGETS = new ConcurrentHashMap<>();
+    private static final Map<String, Stats> STATS = new ConcurrentHashMap<>();
+
+    static {
+        loadFromIni(INI_PATH);
+    }
+
+    private HedgePolicy() {}
+
+    /* ==============================
+     * 1) 决策
+     * ============================== */
+
+    /** 本次请求的对冲等待时间（毫秒）；返回 -1 表示不对冲（未启用或样本不足） */
+    static long hedgeDelayMillis(String provider, String endpoint) {
+        if (!ENABLED.contains(provider)) return -1;
+        budgetFor(provider).earn();
+        Latency l = LATENCY.get(provider + "/" + endpoint);
+        long p90 = l == null ? -1 : l.p90();
+        return p90 < 0 ? -1 : Math.max(minDelayMs, p90);
+    }
+
+    /** 到点后决定是否真的发出对冲请求：消耗 1 个对冲额度 */
+    static boolean tryStart(String provider) {
+        if (!budgetFor(provider).spend()) {
+            statsFor(provider).skipped.increment();
+            return false;
+        }
+        statsFor(provider).hedged.increment();
+        return true;
+    }
+
+    /** tryStart 成功后对冲请求终究没有发出（例如拿不到限流令牌）：退回额度，改记为未对冲 */
+    static void cancelStart(String provider) {
+        budgetFor(provider).refund();
+        Stats s = statsFor(provider);
+        s.hedged.decrement();
+        s.skipped.increment();
+    }
+
+    /** 记录一次拿到响应头的耗时（用于估计 p90） */
+    static void recordLatency(String provider, String endpoint, long ms) {
+        LATENCY.computeIfAbsent(provider + "/" + endpoint, k -> new Latency()).add(ms);
+    }
+
+    static void recordWin(String provider) {
+        statsFor(provider).won.increment();
+    }
+
+    /** 最近 WINDOW 次耗时的环形缓冲 */
+    private static final class Latency {
+        private final long[] samples = new long[WINDOW];
+        private int count;
+        private int next;
+
+        synchronized void add(long ms) {
+            samples[next] = ms;
+            next = (next + 1) % samples.length;
+            count = Math.min(count + 1, samples.length);
+        }
+
+        synchronized long p90() {
+            if (count < MIN_SAMPLES) return -1;
+            long[] copy = Arrays.copyOf(samples, count);
+            Arrays.sort(copy);
+            return copy[(int) Math.ceil(count * 0.9) - 1];
+        }
+    }
+
+    /** 对冲额度：普通请求按比例积累，对冲时消耗 */
+    private static final class Budget {
+        private double credit;
+
+        synchronized void earn() {
+            credit = Math.min(HEDGE_MAX_CREDIT, credit + budgetRatio);
+        }
+
+        synchronized boolean spend() {
+            if (credit < 1) return false;
+            credit -= 1;
+            return true;
+        }
+
+        synchronized void refund() {
+            credit = Math.min(HEDGE_MAX_CREDIT, credit + 1);
+        }
+    }
+
+    private static Budget budgetFor(String provider) {
+        return BUDGETS.computeIfAbsent(provider, k -> new Budget());
+    }
+
+    /* ==============================
+     * 2) 统计
+     * ============================== */
+
+    /** 单个情报源的对冲计数 */
+    public static final class Stats {
+        private final LongAdder hedged = new LongAdder();    // 发出的对冲请求
+        private final LongAdder won = new LongAdder();       // 对冲请求先于原请求返回
+        private final LongAdder skipped = new LongAdder();   // 到点但额度或限流令牌不足而未对冲
+
+        public long hedged()  { return hedged.sum(); }
+        public long won()     { return won.sum(); }
+        public long skipped() { return skipped.sum(); }
+    }
+
+    private static Stats statsFor(String provider) {
+        return STATS.computeIfAbsent(provider, k -> new Stats());
+    }
+
+    /** 多行文本形式的统计，供 About 对话框等处展示 */
+    public static String describeStats() {
+        if (ENABLED.isEmpty()) return "Hedging disabled";
+        Map<String, Stats> snapshot = new TreeMap<>(STATS);
+        if (snapshot.isEmpty()) return "No hedged requests";
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Stats> e : snapshot.entrySet()) {
+            Stats s = e.getValue();
+            sb.append(e.getKey())
+                    .append(": hedged=").append(s.hedged())
+                    .append(", won=").append(s.won())
+                    .append(", skipped=").append(s.skipped())
+                    .append('\n');
+        }
+        return sb.toString().trim();
+    }
+
+    /* ==============================
+     * 3) 配置
+     * ============================== */
+
+    private static void loadFromIni(String path) {
+        Properties p = new Properties();
+        try (FileInputStream in = new FileInputStream(path)) {
+            p.load(in);
+        } catch (Exception ignore) {
+            // 没有 conf.ini 时使用默认值（不对冲）
+        }
+        for (String name : p.getProperty("HEDGE_PROVIDERS", "").split(",")) {
+            if (!name.trim().isEmpty()) ENABLED.add(name.trim());
+        }
+        budgetRatio = Math.max(0, parseLong(p.getProperty("HEDGE_BUDGET_PERCENT"), 10)) / 100.0;
+        minDelayMs = Math.max(0, parseLong(p.getProperty("HEDGE_MIN_DELAY_MS"), 200));
+    }
+
+    private static long parseLong(String s, long def) {
+        if (s == null || s.trim().isEmpty()) return def;
+        try {
+            return Long.parseLong(s.trim());
+        } catch (Exception e) {
+            return def;
+        }
+    }
+}
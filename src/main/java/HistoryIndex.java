@@ -0,0 +1,433 @@
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * History 的内存检索索引：对 HistoryStore 中的记录建立
+ *   - 倒排索引：查询串中的词（小写，按非字母数字切分）、主机名后缀（a.b.example.com → b.example.com、example.com、com）；
+ *   - 分面索引：type、tb_status；
+ *   - 数值范围索引：qax_total、vt_*（值 → 文档列表，按值有序）；
+ *   - 时间范围索引：按天分桶，边界天再按精确时间比对。
+ * 文档按追加顺序编号，倒排列表天然有序；追加只索引新增的记录，删除在查询结果上按存活记录过滤，
+ * 压缩或外部改写（id 全部改变）时整体重建。只在使用过滤条时建立，过滤条清空后释放。
+ *
+ * 过滤语法（空格分隔，全部条件取交集，不区分大小写）：
+ *   example             查询串中含有该词；example* 为前缀
+ *   under:example.com   主机为 example.com 或其子域名
+ *   type:domain         记录类型        tb:malicious    ThreatBook 状态
+ *   vt>3  qax>=1        数值条件：qax / vt（= vt_malicious）/ vt_malicious / vt_suspicious / vt_harmless / vt_undetected，
+ *                       运算符 = > >= < <=
+ *   since:30d  since:12h  since:2024-01-01  before:2024-02-01
+ */
+final class HistoryIndex {
+
+    private static final int BATCH = 4096;
+    private static final String[] NUMERIC_FIELDS =
+            {"qax_total", "vt_malicious", "vt_suspicious", "vt_harmless", "vt_undetected"};
+
+    private final HistoryStore store;
+
+    private long generation = -1;
+    private long maxId = -1;                 // 已索引的最大记录 id
+    private int docs;
+    private long[] docIds = new long[1024];  // 文档号 → 记录 id
+    private long[] times = new long[1024];   // 文档号 → epoch 秒（解析失败为 Long.MIN_VALUE）
+
+    private final TreeMap<String, IntList> words = new TreeMap<>();
+    private final Map<String, IntList> hosts = new HashMap<>();
+    private final Map<String, Map<String, IntList>> facets = new HashMap<>();
+    private final Map<String, TreeMap<Integer, IntList>> numbers = new HashMap<>();
+    private final TreeMap<Long, IntList> days = new TreeMap<>();
+
+    HistoryIndex(HistoryStore store) {
+        this.store = store;
+    }
+
+    /** 递增的有序文档号列表 */
+    private static final class IntList {
+        int[] a = new int[2];
+        int n;
+
+        void add(int v) {
+            if (n == a.length) a = Arrays.copyOf(a, n * 2);
+            a[n++] = v;
+        }
+
+        void into(BitSet bits) {
+            for (int i = 0; i < n; i++) bits.set(a[i]);
+        }
+    }
+
+    /* ==============================
+     * 1) 建立与增量更新
+     * ============================== */
+
+    /**
+     * 与存储同步：只索引上次之后新追加的记录；代数变了（压缩、重建、清空，id 全部改变）时从头重建。
+     * 每批的 id 与内容在同一次持有存储锁时取得；建立途中代数又变了，丢弃已建的部分重新开始。
+     */
+    synchronized void update() throws IOException {
+        store.sync();
+        while (true) {
+            long[] ids;
+            List<String> lines;
+            synchronized (store) {
+                long gen = store.generation();
+                if (gen != generation) {
+                    clear();
+                    generation = gen;
+                }
+                int size = store.size();
+                int from = firstAfter(maxId, size);
+                if (from == size) return;
+                int to = Math.min(size, from + BATCH);
+                ids = store.ids(from, to);
+                lines = store.read(from, to);
+            }
+            for (int i = 0; i < ids.length && i < lines.size(); i++) {
+                add(ids[i], HistoryRecord.parse(lines.get(i)));
+            }
+        }
+    }
+
+    /** 第一条 id 大于 id 的存活记录的序号（存活记录按 id 升序），没有时返回 size；调用方持有存储锁 */
+    private int firstAfter(long id, int size) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (store.id(mid) > id) hi = mid;
+            else lo = mid + 1;
+        }
+        return lo;
+    }
+
+    /** 丢弃索引、释放内存（过滤条清空后）；下次 update 时全量重建 */
+    synchronized void release() {
+        clear();
+        generation = -1;
+    }
+
+    /** 已索引的文档数（含之后被删除的） */
+    synchronized int indexedCount() {
+        return docs;
+    }
+
+    private void clear() {
+        maxId = -1;
+        docs = 0;
+        docIds = new long[1024];
+        times = new long[1024];
+        words.clear();
+        hosts.clear();
+        facets.clear();
+        numbers.clear();
+        days.clear();
+    }
+
+    private void add(long id, HistoryRecord rec) {
+        int doc = docs++;
+        if (doc == docIds.length) {
+            docIds = Arrays.copyOf(docIds, doc * 2);
+            times = Arrays.copyOf(times, doc * 2);
+        }
+        docIds[doc] = id;
+        maxId = Math.max(maxId, id);
+
+        String q = rec.query == null ? "" : rec.query.toLowerCase(Locale.ROOT);
+        for (String w : words(q)) post(words, w, doc);
+        String host = hostOf(q);
+        if (host != null) {
+            for (String suffix : suffixes(host)) post(hosts, suffix, doc);
+        }
+
+        post(facets.computeIfAbsent("type", k -> new HashMap<>()), lower(rec.type), doc);
+        post(facets.computeIfAbsent("tb", k -> new HashMap<>()), lower(tbStatusOf(rec)), doc);
+
+        int[] values = {rec.qaxTotal, rec.vtMalicious, rec.vtSuspicious, rec.vtHarmless, rec.vtUndetected};
+        for (int f = 0; f < NUMERIC_FIELDS.length; f++) {
+            post(numbers.computeIfAbsent(NUMERIC_FIELDS[f], k -> new TreeMap<>()), values[f], doc);
+        }
+
+        long t = parseTime(rec.time);
+        times[doc] = t;
+        if (t != Long.MIN_VALUE) post(days, Math.floorDiv(t, 86400L), doc);
+    }
+
+    private static <K> void post(Map<K, IntList> map, K key, int doc) {
+        IntList list = map.get(key);
+        if (list == null) {
+            list = new IntList();
+            map.put(key, list);
+        }
+        // 同一文档的同一个词只记一次
+        if (list.n == 0 || list.a[list.n - 1] != doc) list.add(doc);
+    }
+
+    /* ==============================
+     * 2) 查询
+     * ============================== */
+
+    /**
+     * 按过滤表达式查询，返回命中的存活记录 id（文件顺序）；表达式为空时返回 null（不过滤）。
+     * 表达式有误时抛出 IllegalArgumentException，消息以 "Error:" 开头。
+     */
+    synchronized long[] search(String expression) {
+        List<String> terms = new ArrayList<>();
+        for (String t : (expression == null ? "" : expression.trim()).split("\\s+")) {
+            if (!t.isEmpty()) terms.add(t.toLowerCase(Locale.ROOT));
+        }
+        if (terms.isEmpty()) return null;
+
+        BitSet result = new BitSet(docs);
+        result.set(0, docs);
+        long since = Long.MIN_VALUE, before = Long.MAX_VALUE;
+        for (String term : terms) {
+            if (term.startsWith("since:")) {
+                since = Math.max(since, parseBound(term.substring(6), term));
+                continue;
+            }
+            if (term.startsWith("before:")) {
+                before = Math.min(before, parseBound(term.substring(7), term));
+                continue;
+            }
+            result.and(match(term));
+            if (result.isEmpty()) break;
+        }
+        if (since != Long.MIN_VALUE || before != Long.MAX_VALUE) result.and(timeRange(since, before));
+
+        long[] ids = new long[result.cardinality()];
+        int n = 0;
+        for (int d = result.nextSetBit(0); d >= 0; d = result.nextSetBit(d + 1)) ids[n++] = docIds[d];
+        return store.retainLive(ids);
+    }
+
+    private BitSet match(String term) {
+        BitSet bits = new BitSet(docs);
+
+        int op = indexOfOperator(term);
+        String field = op > 0 ? numericField(term.substring(0, op)) : null;
+        if (field != null) {
+            int opLen = op + 1 < term.length() && term.charAt(op + 1) == '=' ? 2 : 1;
+            String operator = term.substring(op, op + opLen);
+            int value;
+            try {
+                value = Integer.parseInt(term.substring(op + opLen));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Error: not a number in '" + term + "'");
+            }
+            TreeMap<Integer, IntList> values = numbers.get(field);
+            if (values == null) return bits;
+            NavigableMap<Integer, IntList> range;
+            switch (operator) {
+                case ">":  range = values.tailMap(value, false); break;
+                case ">=": range = values.tailMap(value, true); break;
+                case "<":  range = values.headMap(value, false); break;
+                case "<=": range = values.headMap(value, true); break;
+                case "=":  range = values.subMap(value, true, value, true); break;
+                default:
+                    throw new IllegalArgumentException("Error: unknown operator in '" + term + "'");
+            }
+            // 小于某值时不包括"没有结果"（-1）
+            if (operator.startsWith("<")) range = range.tailMap(0, true);
+            for (IntList l : range.values()) l.into(bits);
+            return bits;
+        }
+
+        int colon = term.indexOf(':');
+        if (colon > 0 && term.indexOf('/') < 0) {
+            String name = term.substring(0, colon);
+            String value = term.substring(colon + 1);
+            switch (name) {
+                case "under":
+                case "host": {
+                    IntList l = hosts.get(trimHost(value));
+                    if (l != null) l.into(bits);
+                    return bits;
+                }
+                case "type":
+                case "tb": {
+                    Map<String, IntList> facet = facets.get(name);
+                    IntList l = facet == null ? null : facet.get(value);
+                    if (l != null) l.into(bits);
+                    return bits;
+                }
+                default:
+                    throw new IllegalArgumentException("Error: unknown filter '" + name + ":'");
+            }
+        }
+
+        // 普通词：查询串中的词全部出现（例如 "evil.com" 拆成 evil、com）；末尾 * 表示前缀
+        boolean prefix = term.endsWith("*");
+        String text = prefix ? term.substring(0, term.length() - 1) : term;
+        List<String> ws = words(text);
+        if (ws.isEmpty()) {
+            bits.set(0, docs);
+            return bits;
+        }
+        bits.set(0, docs);
+        for (int i = 0; i < ws.size(); i++) {
+            String w = ws.get(i);
+            BitSet one = new BitSet(docs);
+            if (prefix && i == ws.size() - 1) {
+                for (IntList l : words.subMap(w, true, w + Character.MAX_VALUE, false).values()) l.into(one);
+            } else {
+                IntList l = words.get(w);
+                if (l != null) l.into(one);
+            }
+            bits.and(one);
+        }
+        return bits;
+    }
+
+    /** [since, before) 内的文档：先取覆盖的天桶，再按精确时间过滤两端 */
+    private BitSet timeRange(long since, long before) {
+        BitSet bits = new BitSet(docs);
+        Long fromDay = since == Long.MIN_VALUE ? days.isEmpty() ? null : days.firstKey() : Math.floorDiv(since, 86400L);
+        Long toDay = before == Long.MAX_VALUE ? days.isEmpty() ? null : days.lastKey() : Math.floorDiv(before, 86400L);
+        if (fromDay == null || toDay == null || fromDay > toDay) return bits;
+        for (Map.Entry<Long, IntList> e : days.subMap(fromDay, true, toDay, true).entrySet()) {
+            boolean edge = e.getKey().equals(fromDay) || e.getKey().equals(toDay);
+            IntList l = e.getValue();
+            for (int i = 0; i < l.n; i++) {
+                int d = l.a[i];
+                if (!edge || (times[d] >= since && times[d] < before)) bits.set(d);
+            }
+        }
+        return bits;
+    }
+
+    /* ==============================
+     * 3) 解析工具
+     * ============================== */
+
+    private static int indexOfOperator(String term) {
+        for (int i = 0; i < term.length(); i++) {
+            char c = term.charAt(i);
+            if (c == '>' || c == '<' || c == '=') return i;
+        }
+        return -1;
+    }
+
+    private static String numericField(String name) {
+        switch (name) {
+            case "qax":
+            case "qax_total":
+                return "qax_total";
+            case "vt":
+            case "vt_malicious":
+                return "vt_malicious";
+            case "vt_suspicious":
+            case "vt_harmless":
+            case "vt_undetected":
+                return name;
+            default:
+                return null;   // 不是数值字段：按普通词处理（例如 URL 中的 q=1）
+        }
+    }
+
+    /** since:/before: 的取值：30d、12h、90m 表示距今，或 yyyy-MM-dd（本地时区当天 0 点） */
+    private static long parseBound(String v, String term) {
+        long now = System.currentTimeMillis() / 1000;
+        try {
+            if (v.matches("\\d+[dhm]")) {
+                long n = Long.parseLong(v.substring(0, v.length() - 1));
+                char unit = v.charAt(v.length() - 1);
+                return now - n * (unit == 'd' ? 86400L : unit == 'h' ? 3600L : 60L);
+            }
+            return LocalDate.parse(v).atStartOfDay(ZoneId.systemDefault()).toEpochSecond();
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Error: bad time in '" + term + "' (use 30d, 12h or yyyy-MM-dd)");
+        }
+    }
+
+    private static long parseTime(String iso) {
+        if (iso == null || iso.isEmpty()) return Long.MIN_VALUE;
+        try {
+            return OffsetDateTime.parse(iso).toEpochSecond();
+        } catch (DateTimeParseException e) {
+            try {
+                return Instant.parse(iso).getEpochSecond();
+            } catch (DateTimeParseException e2) {
+                try {
+                    return LocalDate.parse(iso.length() >= 10 ? iso.substring(0, 10) : iso)
+                            .atStartOfDay(ZoneOffset.UTC).toEpochSecond();
+                } catch (DateTimeParseException e3) {
+                    return Long.MIN_VALUE;
+                }
+            }
+        }
+    }
+
+    /** 查询串的主机部分：URL 取 authority（去掉用户信息与端口），域名/IP 取自身；其他返回 null */
+    private static String hostOf(String q) {
+        String s = q.trim();
+        int scheme = s.indexOf("://");
+        if (scheme >= 0) s = s.substring(scheme + 3);
+        int cut = s.length();
+        for (char c : new char[]{'/', '?', '#'}) {
+            int i = s.indexOf(c);
+            if (i >= 0) cut = Math.min(cut, i);
+        }
+        s = s.substring(0, cut);
+        int at = s.lastIndexOf('@');
+        if (at >= 0) s = s.substring(at + 1);
+        if (s.indexOf(':') >= 0 && s.indexOf(':') == s.lastIndexOf(':')) s = s.substring(0, s.indexOf(':'));
+        s = trimHost(s);
+        if (s.isEmpty() || s.indexOf('.') < 0 || s.indexOf(' ') >= 0) return null;
+        return s;
+    }
+
+    private static String trimHost(String h) {
+        String s = h.trim();
+        while (s.startsWith(".")) s = s.substring(1);
+        while (s.endsWith(".")) s = s.substring(0, s.length() - 1);
+        return s;
+    }
+
+    /** a.b.example.com → a.b.example.com, b.example.com, example.com, com */
+    private static List<String> suffixes(String host) {
+        List<String> out = new ArrayList<>();
+        out.add(host);
+        for (int i = host.indexOf('.'); i >= 0; i = host.indexOf('.', i + 1)) {
+            if (i + 1 < host.length()) out.add(host.substring(i + 1));
+        }
+        return out;
+    }
+
+    /** 按非字母数字切分的词（输入已小写） */
+    private static List<String> words(String s) {
+        List<String> out = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= s.length(); i++) {
+            boolean word = i < s.length() && Character.isLetterOrDigit(s.charAt(i));
+            if (word && start < 0) start = i;
+            if (!word && start >= 0) {
+                out.add(s.substring(start, i));
+                start = -1;
+            }
+        }
+        return out;
+    }
+
+    private static String tbStatusOf(HistoryRecord rec) {
+        if (rec.tbStatus != null && !rec.tbStatus.isEmpty()) return rec.tbStatus;
+        return rec.tbMalicious ? "malicious" : "clean";
+    }
+
+    private static String lower(String s) {
+        return s == null ? "" : s.toLowerCase(Locale.ROOT);
+    }
+}
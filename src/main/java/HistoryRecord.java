@@ -0,0 +1,304 @@
+/**
+ * history.json 中的一条记录（每行一个 JSON 对象）及其编解码。
+ * 解析是对整行的一次扫描，一次取出全部字段：不编译正则、不建树，字段值不含转义时直接截取子串。
+ * 未知字段被跳过，残缺的行尽量解析出已有字段（与旧的逐字段查找一样宽容），不会抛异常。
+ *
+ * 行格式：
+ *   {"time":"...","query":"...","type":"...","qax_total":-1,
+ *    "vt_malicious":-1,"vt_suspicious":-1,"vt_harmless":-1,"vt_undetected":-1,
+ *    "tb_status":"...","tb_malicious":false}
+ * 数值字段 -1 表示没有结果。
+ */
+final class HistoryRecord {
+    public String time = "";
+    public String query = "";
+    public String type = "";
+    public int qaxTotal = -1;
+    public int vtMalicious = -1;
+    public int vtSuspicious = -1;
+    public int vtHarmless = -1;
+    public int vtUndetected = -1;
+    public String tbStatus = "";
+    public boolean tbMalicious;
+
+    /* ==============================
+     * 1) 编码
+     * ============================== */
+
+    /** 编码为一行 JSON（不含换行），字段顺序固定 */
+    String toJson() {
+        StringBuilder sb = new StringBuilder(192 + query.length());
+        sb.append('{');
+        str(sb, "time", time).append(',');
+        str(sb, "query", query).append(',');
+        str(sb, "type", type).append(',');
+        sb.append("\"qax_total\":").append(qaxTotal).append(',');
+        sb.append("\"vt_malicious\":").append(vtMalicious).append(',');
+        sb.append("\"vt_suspicious\":").append(vtSuspicious).append(',');
+        sb.append("\"vt_harmless\":").append(vtHarmless).append(',');
+        sb.append("\"vt_undetected\":").append(vtUndetected).append(',');
+        str(sb, "tb_status", tbStatus).append(',');
+        sb.append("\"tb_malicious\":").append(tbMalicious);
+        return sb.append('}').toString();
+    }
+
+    private static StringBuilder str(StringBuilder sb, String key, String value) {
+        sb.append('"').append(key).append("\":\"");
+        escape(sb, value);
+        return sb.append('"');
+    }
+
+    /** JSON 字符串转义：引号、反斜杠与全部控制字符（换行等不会把一条记录拆成两行） */
+    static void escape(StringBuilder sb, String s) {
+        if (s == null) return;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':  sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                case '\b': sb.append("\\b"); break;
+                case '\f': sb.append("\\f"); break;
+                default:
+                    if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+    }
+
+    /* ==============================
+     * 2) 解析
+     * ============================== */
+
+    /** 解析一行；null、空行或非对象时返回全部为默认值的记录 */
+    static HistoryRecord parse(String line) {
+        HistoryRecord r = new HistoryRecord();
+        if (line != null) new Parser(line).readInto(r);
+        return r;
+    }
+
+    /** 单行扫描器：遇到不合法的内容就停止，保留已解析的字段 */
+    private static final class Parser {
+        private final String s;
+        private final int n;
+        private int pos;
+        private boolean failed;
+        private boolean escaped;          // 最近一次 skipString 跳过的字符串含转义
+
+        Parser(String s) {
+            this.s = s;
+            this.n = s.length();
+        }
+
+        void readInto(HistoryRecord r) {
+            skipWs();
+            if (!eat('{')) return;
+            while (true) {
+                skipWs();
+                if (pos >= n || s.charAt(pos) != '"') return;
+                int ks = pos + 1;
+                int ke = skipString();
+                if (ke < 0) return;
+                skipWs();
+                if (!eat(':')) return;
+                skipWs();
+                if (!field(r, ks, ke)) return;
+                skipWs();
+                if (!eat(',')) return;
+            }
+        }
+
+        /** 读取键 [ks, ke) 对应的值；未知键跳过其值。格式错误返回 false */
+        private boolean field(HistoryRecord r, int ks, int ke) {
+            switch (ke - ks) {
+                case 4:
+                    if (key(ks, "time")) r.time = string(r.time);
+                    else if (key(ks, "type")) r.type = string(r.type);
+                    else skip();
+                    break;
+                case 5:
+                    if (key(ks, "query")) r.query = string(r.query);
+                    else skip();
+                    break;
+                case 9:
+                    if (key(ks, "qax_total")) r.qaxTotal = integer(r.qaxTotal);
+                    else if (key(ks, "tb_status")) r.tbStatus = string(r.tbStatus);
+                    else skip();
+                    break;
+                case 11:
+                    if (key(ks, "vt_harmless")) r.vtHarmless = integer(r.vtHarmless);
+                    else skip();
+                    break;
+                case 12:
+                    if (key(ks, "vt_malicious")) r.vtMalicious = integer(r.vtMalicious);
+                    else if (key(ks, "tb_malicious")) r.tbMalicious = bool(r.tbMalicious);
+                    else skip();
+                    break;
+                case 13:
+                    if (key(ks, "vt_suspicious")) r.vtSuspicious = integer(r.vtSuspicious);
+                    else if (key(ks, "vt_undetected")) r.vtUndetected = integer(r.vtUndetected);
+                    else skip();
+                    break;
+                default:
+                    skip();
+            }
+            return !failed;
+        }
+
+        private boolean key(int ks, String name) {
+            return s.regionMatches(ks, name, 0, name.length());
+        }
+
+        private void skip() {
+            if (!skipValue()) failed = true;
+        }
+
+        /** 字符串值；类型不符时跳过并保留原值 */
+        private String string(String def) {
+            if (pos >= n || s.charAt(pos) != '"') {
+                skip();
+                return def;
+            }
+            int start = pos + 1;
+            int end = skipString();
+            if (end < 0) {
+                failed = true;
+                return def;
+            }
+            return escaped ? unescape(start, end) : s.substring(start, end);
+        }
+
+        /** 整数值；类型不符或超出 int 范围时保留原值 */
+        private int integer(int def) {
+            int start = pos;
+            boolean neg = pos < n && s.charAt(pos) == '-';
+            if (neg) pos++;
+            long v = 0;
+            int digits = 0;
+            while (pos < n) {
+                char c = s.charAt(pos);
+                if (c < '0' || c > '9') break;
+                if (v <= Integer.MAX_VALUE) v = v * 10 + (c - '0');
+                digits++;
+                pos++;
+            }
+            if (digits == 0 || (pos < n && (s.charAt(pos) == '.' || s.charAt(pos) == 'e' || s.charAt(pos) == 'E'))) {
+                pos = start;
+                skip();
+                return def;
+            }
+            if (v > Integer.MAX_VALUE) return def;
+            return (int) (neg ? -v : v);
+        }
+
+        private boolean bool(boolean def) {
+            if (s.startsWith("true", pos)) {
+                pos += 4;
+                return true;
+            }
+            if (s.startsWith("false", pos)) {
+                pos += 5;
+                return false;
+            }
+            skip();
+            return def;
+        }
+
+        /** pos 指向开引号；返回闭引号的位置并越过它，未闭合返回 -1 */
+        private int skipString() {
+            int i = pos + 1;
+            escaped = false;
+            while (i < n) {
+                char c = s.charAt(i);
+                if (c == '\\') {
+                    escaped = true;
+                    i += 2;
+                } else if (c == '"') {
+                    pos = i + 1;
+                    return i;
+                } else {
+                    i++;
+                }
+            }
+            return -1;
+        }
+
+        /** 跳过任意值（含嵌套的对象/数组） */
+        private boolean skipValue() {
+            int depth = 0;
+            while (pos < n) {
+                char c = s.charAt(pos);
+                if (c == '"') {
+                    if (skipString() < 0) return false;
+                } else if (c == '{' || c == '[') {
+                    depth++;
+                    pos++;
+                } else if (c == '}' || c == ']') {
+                    if (depth == 0) return true;
+                    depth--;
+                    pos++;
+                } else if (c == ',' && depth == 0) {
+                    return true;
+                } else {
+                    pos++;
+                }
+            }
+            return depth == 0;
+        }
+
+        private String unescape(int start, int end) {
+            StringBuilder sb = new StringBuilder(end - start);
+            for (int i = start; i < end; i++) {
+                char c = s.charAt(i);
+                if (c != '\\' || i + 1 >= end) {
+                    sb.append(c);
+                    continue;
+                }
+                char e = s.charAt(++i);
+                switch (e) {
+                    case 'n': sb.append('\n'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case 'u':
+                        if (i + 4 < end) {
+                            try {
+                                sb.append((char) Integer.parseInt(s.substring(i + 1, i + 5), 16));
+                                i += 4;
+                                break;
+                            } catch (NumberFormatException ignore) {
+                                // 非法的 unicode 转义：原样保留
+                            }
+                        }
+                        sb.append('\\').append(e);
+                        break;
+                    default:
+                        sb.append(e);   // \" \\ \/
+                }
+            }
+            return sb.toString();
+        }
+
+        private void skipWs() {
+            while (pos < n) {
+                char c = s.charAt(pos);
+                if (c != ' ' && c != '\t' && c != '\r' && c != '\n') return;
+                pos++;
+            }
+        }
+
+        private boolean eat(char c) {
+            if (pos < n && s.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,631 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * history.json 的追加写存储：每行一条 JSON 记录，文件格式不变（仍可直接用编辑器打开）。
+ * 旁边的索引文件（history.json.idx）记录每行的起始偏移，重新加载时只扫描索引之后新增的部分；
+ * 索引与数据对不上（文件被外部改写或截断）时自动全量重建。
+ *
+ * 记录以其起始偏移为 id。删除不改写文件，而是追加一行墓碑 {"deleted":[id,...]}（多选删除也只写一行），
+ * 被删记录在索引中打上标记、立即从可见记录中消失；失效行累积到一定比例后，
+ * 在后台线程把存活记录复制到临时文件并原子改名（压缩），完成后 id 全部改变，通过 onCompacted 通知调用方重新加载。
+ *
+ * 读取走一个常开的 FileChannel 按偏移读（由操作系统页缓存承担缓存），只解码调用方要的行；
+ * 没有用内存映射：Windows 上被映射的文件在映射被回收前无法截断或被改名覆盖，会让清空与压缩失败。
+ *
+ * 索引格式：int MAGIC | long end（已索引部分的结束偏移）| long entry × N
+ * entry 的低 61 位为偏移，高位为标记（墓碑行 / 已删除）。
+ * 追加时先写数据、再写索引项、最后更新 end；崩溃后 end 之后的部分会被重新扫描（墓碑可重复应用）。
+ */
+final class HistoryStore {
+
+    private static final int MAGIC = 0x48495832;   // "HIX2"
+    private static final int HEADER = 4 + 8;
+    private static final int SCAN_CHUNK = 64 * 1024;
+
+    private static final long TOMBSTONE = 1L << 62;   // 该行是删除标记
+    private static final long DELETED = 1L << 61;     // 该行记录已被删除
+    private static final long OFFSET_MASK = DELETED - 1;
+    private static final byte[] TOMBSTONE_PREFIX = "{\"deleted\":[".getBytes(StandardCharsets.US_ASCII);
+
+    /** 失效行（已删记录 + 墓碑）至少这么多、且占全部行的 1/4 以上时压缩 */
+    private static final int COMPACT_MIN_DEAD = 256;
+
+    private static final ExecutorService COMPACTOR =
+            Executors.newSingleThreadExecutor(LookupExecutor.daemonFactory("history-compactor"));
+
+    private final Path data;
+    private final Path index;
+
+    private long[] entries = new long[1024];   // 每一行（含墓碑）一项
+    private int count;
+    private int[] live = new int[1024];        // 存活记录所在的行号，升序
+    private int liveCount;
+    private int dead;                          // 已删记录 + 墓碑行
+    private long end;                          // 已索引的最后一行（含换行）之后的位置
+    private long generation;                   // 每次重建/压缩/清空 +1：此前的 id 全部失效
+    private long modCount;                     // 存活记录集合每次非追加的变化（删除、替换、generation 变化）+1
+    private FileChannel reader;
+    private boolean indexLoaded;
+    private boolean compacting;
+    private volatile Runnable onCompacted;
+
+    HistoryStore(Path data) {
+        this.data = data;
+        this.index = data.resolveSibling(data.getFileName() + ".idx");
+    }
+
+    /** 后台压缩完成后（在压缩线程上）调用；此前取得的 id 与序号全部失效 */
+    void setOnCompacted(Runnable r) {
+        this.onCompacted = r;
+    }
+
+    /* ==============================
+     * 1) 读
+     * ============================== */
+
+    /** 存活记录数（上次 sync 时） */
+    synchronized int size() {
+        return liveCount;
+    }
+
+    /** 第 i 条存活记录的 id */
+    synchronized long id(int i) {
+        return entries[live[i]] & OFFSET_MASK;
+    }
+
+    /** 第 from 到 to-1 条存活记录的 id（升序） */
+    synchronized long[] ids(int from, int to) {
+        from = Math.max(0, from);
+        to = Math.min(liveCount, to);
+        long[] out = new long[Math.max(0, to - from)];
+        for (int i = from; i < to; i++) out[i - from] = entries[live[i]] & OFFSET_MASK;
+        return out;
+    }
+
+    /** 去掉 ids 中已不是存活记录的 id（保持顺序）；全部存活时返回原数组 */
+    synchronized long[] retainLive(long[] ids) {
+        // 已删除的记录通常远少于存活记录：先顺序收集它们的 id，再对这个小数组二分查找
+        long[] gone = new long[Math.max(16, dead)];
+        int g = 0;
+        for (int l = 0; l < count; l++) {
+            if ((entries[l] & DELETED) == 0) continue;
+            if (g == gone.length) gone = Arrays.copyOf(gone, g * 2);
+            gone[g++] = entries[l] & OFFSET_MASK;
+        }
+        long[] out = null;
+        int n = 0;
+        for (int i = 0; i < ids.length; i++) {
+            boolean alive = (g == 0 || Arrays.binarySearch(gone, 0, g, ids[i]) < 0) && ids[i] < end;
+            if (!alive && out == null) {
+                out = new long[ids.length];
+                System.arraycopy(ids, 0, out, 0, i);
+                n = i;
+            }
+            if (alive && out != null) out[n++] = ids[i];
+        }
+        return out == null ? ids : Arrays.copyOf(out, n);
+    }
+
+    synchronized long generation() {
+        return generation;
+    }
+
+    synchronized long modCount() {
+        return modCount;
+    }
+
+    /**
+     * 与磁盘同步：加载/校验索引并索引新增的行（含其中的墓碑）。
+     * 返回 true 表示数据文件被外部改写、索引已重建（调用方应全量刷新界面）；false 表示只可能有追加。
+     */
+    synchronized boolean sync() throws IOException {
+        boolean rebuilt = false;
+        if (!indexLoaded) {
+            rebuilt = !loadIndex();
+            indexLoaded = true;
+        }
+        long len = Files.exists(data) ? Files.size(data) : 0;
+        if (!consistent(len)) {
+            reset();
+            rebuilt = true;
+        }
+        if (rebuilt) {
+            closeReader();
+            newGeneration();
+            writeIndexFromScratch();
+        }
+        if (len > end) scanFrom(end, len);
+        return rebuilt;
+    }
+
+    /** 读取第 from 到 to-1 条存活记录（一次连续读取） */
+    synchronized List<String> read(int from, int to) throws IOException {
+        from = Math.max(0, from);
+        to = Math.min(liveCount, to);
+        List<String> out = new ArrayList<>(Math.max(0, to - from));
+        if (from >= to) return out;
+        long start = offset(live[from]);
+        byte[] buf = readRange(start, lineEnd(live[to - 1]));
+        for (int i = from; i < to; i++) {
+            int line = live[i];
+            out.add(trimLine(buf, (int) (offset(line) - start), (int) (lineEnd(line) - start)));
+        }
+        return out;
+    }
+
+    synchronized String read(int i) throws IOException {
+        List<String> one = read(i, i + 1);
+        return one.isEmpty() ? null : one.get(0);
+    }
+
+    /**
+     * 按 id 读取 ids[from..to)：相邻的行合并成一次读取。
+     * 结果与 ids 一一对应，已不是存活记录的位置为 null。
+     */
+    synchronized List<String> readIds(long[] ids, int from, int to) throws IOException {
+        List<String> out = new ArrayList<>(Math.max(0, to - from));
+        int i = from;
+        while (i < to) {
+            int line = lineOf(ids[i]);
+            if (line < 0 || (entries[line] & (TOMBSTONE | DELETED)) != 0) {
+                out.add(null);
+                i++;
+                continue;
+            }
+            // 向后合并：下一个 id 恰好是随后的存活记录，且合并后的读取不超过 SCAN_CHUNK
+            int j = i + 1;
+            int last = line;
+            while (j < to) {
+                int next = nextLive(last);
+                if (next < 0 || (entries[next] & OFFSET_MASK) != ids[j]
+                        || lineEnd(next) - offset(line) > SCAN_CHUNK) break;
+                last = next;
+                j++;
+            }
+            long start = offset(line);
+            byte[] buf = readRange(start, lineEnd(last));
+            for (int l = line; l <= last; l++) {
+                if ((entries[l] & (TOMBSTONE | DELETED)) != 0) continue;
+                out.add(trimLine(buf, (int) (offset(l) - start), (int) (lineEnd(l) - start)));
+            }
+            i = j;
+        }
+        return out;
+    }
+
+    /** 按 id 读取；id 不是存活记录（已删除、已压缩或外部改写）时返回 null */
+    synchronized String readId(long id) throws IOException {
+        int line = lineOf(id);
+        if (line < 0 || (entries[line] & (TOMBSTONE | DELETED)) != 0) return null;
+        byte[] buf = readRange(offset(line), lineEnd(line));
+        return trimLine(buf, 0, buf.length);
+    }
+
+    /**
+     * 找到内容为 line 的存活记录：先按 id，id 失效（例如中间发生过压缩）时在最近的 tail 条记录中查找。
+     * 找不到返回 -1。
+     */
+    private long locate(long id, String line, int tail) throws IOException {
+        if (line == null) return -1;
+        if (id >= 0 && line.equals(readId(id))) return id;
+        int from = Math.max(0, liveCount - tail);
+        List<String> recent = read(from, liveCount);
+        for (int i = recent.size() - 1; i >= 0; i--) {
+            if (line.equals(recent.get(i))) return id(from + i);
+        }
+        return -1;
+    }
+
+    /* ==============================
+     * 2) 写
+     * ============================== */
+
+    /** 追加一条记录，返回其 id */
+    synchronized long append(String line) throws IOException {
+        appendText(line + "\n");
+        return id(liveCount - 1);
+    }
+
+    /**
+     * 删除若干条记录：只追加一行墓碑，之后视情况在后台压缩。
+     * ids 取自 expectedGeneration 代；其间发生过压缩或重建（id 已失效）时不删除并返回 false。
+     */
+    synchronized boolean delete(long expectedGeneration, long... ids) throws IOException {
+        if (generation != expectedGeneration) return false;
+        if (ids.length == 0) return true;
+        appendText(tombstone(ids));
+        maybeCompact();
+        return true;
+    }
+
+    /**
+     * 把内容为 oldLine 的记录（id 为提示，失效时在最近 256 条中查找）替换为 line：
+     * 墓碑与新记录一次写入（新记录位于末尾），返回新 id；原记录已不存在时返回 -1。
+     */
+    synchronized long replace(long id, String oldLine, String line) throws IOException {
+        long found = locate(id, oldLine, 256);
+        if (found < 0) return -1;
+        appendText(tombstone(found) + line + "\n");
+        long newId = id(liveCount - 1);
+        maybeCompact();
+        return newId;
+    }
+
+    /** 清空全部记录 */
+    synchronized void clear() throws IOException {
+        closeReader();
+        Files.write(data, new byte[0]);
+        reset();
+        newGeneration();
+        writeIndexFromScratch();
+    }
+
+    private void appendText(String text) throws IOException {
+        sync();
+        long len = Files.exists(data) ? Files.size(data) : 0;
+        // 上一行没有换行结尾（外部写入中断）：先补一个换行，避免两条记录粘在一起
+        if (len > end) text = "\n" + text;
+        Files.write(data, text.getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        sync();
+    }
+
+    private static String tombstone(long... ids) {
+        StringBuilder sb = new StringBuilder(16 + ids.length * 8).append("{\"deleted\":[");
+        for (int i = 0; i < ids.length; i++) {
+            if (i > 0) sb.append(',');
+            sb.append(ids[i]);
+        }
+        return sb.append("]}\n").toString();
+    }
+
+    /* ==============================
+     * 3) 后台压缩
+     * ============================== */
+
+    private void maybeCompact() {
+        if (compacting || dead < COMPACT_MIN_DEAD || dead * 4L < count) return;
+        compacting = true;
+        COMPACTOR.execute(this::compact);
+    }
+
+    /**
+     * 把存活记录复制到临时文件后原子改名。复制在锁外进行，界面线程照常追加/删除；
+     * 若期间文件有任何变化则放弃本次结果，按最新状态重新压缩。
+     */
+    private void compact() {
+        long[] starts;
+        long[] ends;
+        long snapEnd;
+        long snapGen;
+        synchronized (this) {
+            starts = new long[liveCount];
+            ends = new long[liveCount];
+            for (int i = 0; i < liveCount; i++) {
+                starts[i] = offset(live[i]);
+                ends[i] = lineEnd(live[i]);
+            }
+            snapEnd = end;
+            snapGen = generation;
+        }
+
+        Path tmp = data.resolveSibling(data.getFileName() + ".tmp");
+        long[] newOffsets = new long[Math.max(1024, starts.length)];
+        long written = 0;
+        boolean done = false;
+        boolean failed = false;
+        try {
+            try (FileChannel in = FileChannel.open(data, StandardOpenOption.READ);
+                 FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                         StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                for (int i = 0; i < starts.length; i++) {
+                    newOffsets[i] = written;
+                    long pos = starts[i];
+                    while (pos < ends[i]) {
+                        long n = in.transferTo(pos, ends[i] - pos, out);
+                        if (n <= 0) throw new IOException("history.json truncated while compacting");
+                        pos += n;
+                    }
+                    written += ends[i] - starts[i];
+                }
+                out.force(true);
+            }
+            synchronized (this) {
+                long len = Files.exists(data) ? Files.size(data) : 0;
+                if (generation == snapGen && end == snapEnd && len == snapEnd) {
+                    closeReader();
+                    Files.move(tmp, data, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    entries = newOffsets;
+                    count = starts.length;
+                    end = written;
+                    dead = 0;
+                    rebuildLive();
+                    newGeneration();
+                    writeIndexFromScratch();
+                    done = true;
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("[History] compaction failed: " + e.getMessage());
+            failed = true;
+        } finally {
+            synchronized (this) {
+                compacting = false;
+                if (!done && !failed) maybeCompact();
+            }
+            try {
+                Files.deleteIfExists(tmp);
+            } catch (IOException ignore) {
+            }
+        }
+        Runnable r = onCompacted;
+        if (done && r != null) r.run();
+    }
+
+    /* ==============================
+     * 4) 内部实现
+     * ============================== */
+
+    private void reset() {
+        entries = new long[1024];
+        count = 0;
+        live = new int[1024];
+        liveCount = 0;
+        dead = 0;
+        end = 0;
+    }
+
+    private void newGeneration() {
+        generation++;
+        modCount++;
+    }
+
+    private long offset(int line) {
+        return entries[line] & OFFSET_MASK;
+    }
+
+    private long lineEnd(int line) {
+        return line + 1 < count ? offset(line + 1) : end;
+    }
+
+    /** line 之后的第一条存活记录的行号，没有时返回 -1 */
+    private int nextLive(int line) {
+        for (int l = line + 1; l < count; l++) {
+            if ((entries[l] & (TOMBSTONE | DELETED)) == 0) return l;
+        }
+        return -1;
+    }
+
+    /** id（行起始偏移）对应的行号；不是某行的起点时返回 -1 */
+    private int lineOf(long id) {
+        int lo = 0, hi = count - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long off = offset(mid);
+            if (off < id) lo = mid + 1;
+            else if (off > id) hi = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    private byte[] readRange(long start, long stop) throws IOException {
+        byte[] buf = new byte[(int) (stop - start)];
+        if (reader == null || !reader.isOpen()) reader = FileChannel.open(data, StandardOpenOption.READ);
+        ByteBuffer bb = ByteBuffer.wrap(buf);
+        long pos = start;
+        while (bb.hasRemaining()) {
+            int n = reader.read(bb, pos);
+            if (n < 0) throw new IOException("history.json truncated while reading");
+            pos += n;
+        }
+        return buf;
+    }
+
+    private void closeReader() {
+        if (reader == null) return;
+        try {
+            reader.close();
+        } catch (IOException ignore) {
+        }
+        reader = null;
+    }
+
+    /** 已索引的部分仍是数据文件的前缀：长度足够，且 end 前一个字节是换行 */
+    private boolean consistent(long len) throws IOException {
+        if (end == 0) return true;
+        if (end > len) return false;
+        try (RandomAccessFile raf = new RandomAccessFile(data.toFile(), "r")) {
+            raf.seek(end - 1);
+            return raf.read() == '\n';
+        }
+    }
+
+    /** 读索引文件；不存在或损坏时返回 false（随后全量扫描） */
+    private boolean loadIndex() {
+        if (!Files.exists(index)) return false;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(index)))) {
+            if (in.readInt() != MAGIC) return false;
+            long e = in.readLong();
+            long n = (Files.size(index) - HEADER) / 8;
+            long[] ents = new long[(int) Math.max(1024, n)];
+            int c = 0;
+            int d = 0;
+            long prev = -1;
+            for (long k = 0; k < n; k++) {
+                long entry = in.readLong();
+                long off = entry & OFFSET_MASK;
+                if (off >= e || off <= prev) break;   // end 之后的项是未完成的追加
+                ents[c++] = entry;
+                if ((entry & (TOMBSTONE | DELETED)) != 0) d++;
+                prev = off;
+            }
+            entries = ents;
+            count = c;
+            dead = d;
+            end = c == 0 ? 0 : e;
+            rebuildLive();
+            return true;
+        } catch (IOException ex) {
+            reset();
+            return false;
+        }
+    }
+
+    private void writeIndexFromScratch() throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(index)))) {
+            out.writeInt(MAGIC);
+            out.writeLong(end);
+            for (int i = 0; i < count; i++) out.writeLong(entries[i]);
+        }
+    }
+
+    /**
+     * 扫描 [from, len) 中以换行结束的完整行，空行跳过；以墓碑前缀开头的行记为墓碑并应用其中的删除。
+     * 新索引项追加到索引文件，被删除的旧记录就地改写其索引项。
+     */
+    private void scanFrom(long from, long len) throws IOException {
+        int before = count;
+        long lineStart = from;
+        boolean blank = true;
+        int col = 0;
+        boolean tomb = true;
+        try (FileChannel ch = FileChannel.open(data, StandardOpenOption.READ)) {
+            ByteBuffer bb = ByteBuffer.allocate(SCAN_CHUNK);
+            long pos = from;
+            while (pos < len) {
+                bb.clear();
+                int n = ch.read(bb, pos);
+                if (n <= 0) break;
+                for (int k = 0; k < n; k++) {
+                    byte b = bb.get(k);
+                    if (b == '\n') {
+                        if (!blank) add(lineStart | (tomb && col >= TOMBSTONE_PREFIX.length ? TOMBSTONE : 0));
+                        lineStart = pos + k + 1;
+                        end = lineStart;
+                        blank = true;
+                        col = 0;
+                        tomb = true;
+                        continue;
+                    }
+                    if (col < TOMBSTONE_PREFIX.length && b != TOMBSTONE_PREFIX[col]) tomb = false;
+                    col++;
+                    if (b != '\r' && b != ' ' && b != '\t') blank = false;
+                }
+                pos += n;
+            }
+        }
+        if (count == before && end == from) return;
+
+        List<Integer> changed = applyTombstones(before);
+
+        try (RandomAccessFile raf = new RandomAccessFile(index.toFile(), "rw")) {
+            for (int line : changed) {
+                raf.seek(HEADER + (long) line * 8);
+                raf.writeLong(entries[line]);
+            }
+            raf.seek(HEADER + (long) before * 8);
+            ByteArrayOutputStream buf = new ByteArrayOutputStream((count - before) * 8);
+            DataOutputStream out = new DataOutputStream(buf);
+            for (int i = before; i < count; i++) out.writeLong(entries[i]);
+            raf.write(buf.toByteArray());
+            raf.setLength(HEADER + (long) count * 8);
+            raf.seek(4);
+            raf.writeLong(end);
+        }
+    }
+
+    /** 应用第 from 行之后新出现的墓碑，更新存活记录；返回 from 之前被改写的索引项 */
+    private List<Integer> applyTombstones(int from) throws IOException {
+        List<Integer> changed = new ArrayList<>();
+        boolean removed = false;
+        for (int i = from; i < count; i++) {
+            if ((entries[i] & TOMBSTONE) != 0) {
+                dead++;
+                byte[] buf = readRange(offset(i), lineEnd(i));
+                for (long id : parseIds(buf)) {
+                    int line = lineOf(id);
+                    if (line < 0 || line >= i || (entries[line] & (TOMBSTONE | DELETED)) != 0) continue;
+                    entries[line] |= DELETED;
+                    dead++;
+                    if (line < from) {
+                        changed.add(line);
+                        removed = true;
+                    }
+                }
+            }
+        }
+        if (removed) {
+            modCount++;
+            rebuildLive();
+        } else {
+            for (int i = from; i < count; i++) {
+                if ((entries[i] & (TOMBSTONE | DELETED)) == 0) addLive(i);
+            }
+        }
+        return changed;
+    }
+
+    /** 墓碑行中的 id 列表 */
+    private static long[] parseIds(byte[] buf) {
+        long[] ids = new long[8];
+        int n = 0;
+        long v = -1;
+        for (int k = TOMBSTONE_PREFIX.length; k < buf.length; k++) {
+            byte b = buf[k];
+            if (b >= '0' && b <= '9') {
+                v = (v < 0 ? 0 : v * 10) + (b - '0');
+                continue;
+            }
+            if (v >= 0) {
+                if (n == ids.length) ids = Arrays.copyOf(ids, n * 2);
+                ids[n++] = v;
+                v = -1;
+            }
+            if (b == ']') break;
+        }
+        return Arrays.copyOf(ids, n);
+    }
+
+    private void rebuildLive() {
+        live = new int[Math.max(1024, count)];
+        liveCount = 0;
+        for (int i = 0; i < count; i++) {
+            if ((entries[i] & (TOMBSTONE | DELETED)) == 0) addLive(i);
+        }
+    }
+
+    private void addLive(int line) {
+        if (liveCount == live.length) live = Arrays.copyOf(live, liveCount * 2);
+        live[liveCount++] = line;
+    }
+
+    private void add(long entry) {
+        if (count == entries.length) entries = Arrays.copyOf(entries, count * 2);
+        entries[count++] = entry;
+    }
+
+    /** 去掉行尾的换行与空白 */
+    private static String trimLine(byte[] buf, int s, int e) {
+        while (e > s && (buf[e - 1] == '\n' || buf[e - 1] == '\r' || buf[e - 1] == ' ' || buf[e - 1] == '\t')) e--;
+        return new String(buf, s, e - s, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,506 @@
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import javax.swing.table.AbstractTableModel;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * History 表格的分页模型：直接以 HistoryStore 为数据源，不在内存里保存全部行。
+ * 只有被绘制到的行才按页（PAGE_ROWS 行）读取、解码，最近的 MAX_PAGES 页留在缓存中，
+ * 因此堆占用与历史条数基本无关（索引每条约 12 字节，排序后的顺序每条 8 字节）。
+ *
+ * 排序不经过 TableRowSorter（它要对每一行调用 getValueAt，等于解码全部记录）：
+ * 点击表头时在后台读一遍所选列、只保留紧凑的排序键，排好后以记录 id 数组作为显示顺序，
+ * 排序期间表格照常滚动；同一列切换升降序只是把顺序反转。
+ * 设置过滤（HistoryIndex 的查询结果）后只显示命中的记录，新追加的记录由调用方重新查询后再设置。
+ * 所有方法都在 EDT 上调用。
+ */
+final class HistoryTableModel extends AbstractTableModel {
+
+    private static final long serialVersionUID = 1L;
+
+    static final String[] COLUMNS = {"Time", "Query", "Type", "Qi-Anxin TIP", "VirusTotal", "ThreatBook"};
+
+    private static final int PAGE_ROWS = 128;
+    private static final int MAX_PAGES = 64;
+    private static final int SORT_BATCH = 4096;
+
+    private final HistoryStore store;
+    private final Sorter sorter = new Sorter();
+
+    private int rows;                    // 当前显示的行数
+    private long[] order;                // 显示顺序（记录 id）；null 表示按文件顺序显示全部（第 i 行即第 i 条存活记录）
+    private long[] filter;               // 过滤命中的记录 id（文件顺序）；null 表示不过滤
+    private long orderMaxId = -1;        // order 中最大的 id：比它大的是排序之后追加的记录
+    private long seenGeneration = -1;
+    private long seenModCount = -1;
+
+    private int sortColumn = -1;
+    private boolean ascending = true;
+    private int sortTicket;
+
+    private final Map<Integer, Object[][]> pages = new LinkedHashMap<Integer, Object[][]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Object[][]> eldest) {
+            return size() > MAX_PAGES;
+        }
+    };
+
+    HistoryTableModel(HistoryStore store) {
+        this.store = store;
+    }
+
+    /** 供 JTable.setRowSorter 使用：表头箭头与点击排序 */
+    RowSorter<HistoryTableModel> sorter() {
+        return sorter;
+    }
+
+    /* ==============================
+     * 1) TableModel
+     * ============================== */
+
+    @Override
+    public int getRowCount() {
+        return rows;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        if (row < 0 || row >= rows) return "";
+        int page = row / PAGE_ROWS;
+        Object[][] cells = pages.get(page);
+        if (cells == null) {
+            cells = loadPage(page);
+            pages.put(page, cells);
+        }
+        Object[] r = cells[row - page * PAGE_ROWS];
+        return r == null ? "" : r[column];
+    }
+
+    private Object[][] loadPage(int page) {
+        int from = page * PAGE_ROWS;
+        int to = Math.min(rows, from + PAGE_ROWS);
+        Object[][] cells = new Object[to - from][];
+        try {
+            List<String> lines = order == null ? store.read(from, to) : store.readIds(order, from, to);
+            for (int i = 0; i < lines.size() && i < cells.length; i++) {
+                String line = lines.get(i);
+                if (line != null) cells[i] = cells(HistoryRecord.parse(line));
+            }
+        } catch (IOException e) {
+            System.err.println("[History] read failed: " + e.getMessage());
+        }
+        return cells;
+    }
+
+    /** 一条历史记录 → 表格行 */
+    static Object[] cells(HistoryRecord rec) {
+        int m = rec.vtMalicious, s = rec.vtSuspicious, h = rec.vtHarmless, u = rec.vtUndetected;
+
+        String vtCell;
+        if (m < 0 || s < 0 || h < 0 || u < 0) {
+            vtCell = "—";
+        } else {
+            int num = m + s;
+            int den = num + h + u;
+            vtCell = den > 0 ? (num + "/" + den) : "—";
+        }
+
+        String tbCell;
+        if (rec.tbStatus != null && !rec.tbStatus.isEmpty()) {
+            tbCell = rec.tbStatus;
+        } else {
+            tbCell = rec.tbMalicious ? "malicious" : "clean";
+        }
+
+        return new Object[]{
+                rec.time, rec.query, rec.type,
+                (rec.qaxTotal >= 0 ? rec.qaxTotal : "—"),
+                vtCell, tbCell
+        };
+    }
+
+    /* ==============================
+     * 2) 与存储同步
+     * ============================== */
+
+    /**
+     * 按存储的当前状态刷新显示：只有追加时只插入新行；有删除、替换、压缩或外部改写时重新建立显示顺序。
+     * 只读内存中的索引，不读写文件；调用方先在后台 HistoryStore.sync()，再回到 EDT 调用本方法。
+     */
+    void refresh() {
+        if (store.generation() != seenGeneration) {
+            // 所有 id 都变了：回到文件顺序，有排序时在后台重新排
+            seenGeneration = store.generation();
+            seenModCount = store.modCount();
+            if (filter != null) filter = new long[0];   // 旧 id 已失效，等调用方重新查询
+            order = filter;
+            orderMaxId = -1;
+            rows = order != null ? order.length : store.size();
+            pages.clear();
+            fireTableDataChanged();
+            if (sortColumn >= 0) startSort();
+            return;
+        }
+        if (store.modCount() != seenModCount) {
+            seenModCount = store.modCount();
+            boolean grew = false;
+            if (filter != null) {
+                filter = store.retainLive(filter);
+                if (order != null) order = store.retainLive(order);
+            } else if (order != null) {
+                long[] kept = store.retainLive(order);
+                order = withAppended(kept);
+                grew = order.length > kept.length;   // 替换产生的新记录接在末尾，需要重新排
+            }
+            rows = order != null ? order.length : store.size();
+            pages.clear();
+            fireTableDataChanged();
+            if (grew) startSort();
+            return;
+        }
+
+        int before = rows;
+        if (filter != null) return;
+        if (order != null) {
+            long[] grown = withAppended(order);
+            if (grown.length == order.length) return;
+            order = grown;
+            rows = order.length;
+            startSort();
+        } else {
+            rows = store.size();
+            if (rows <= before) return;
+        }
+        pages.remove(before / PAGE_ROWS);   // 末尾那页可能不完整
+        fireTableRowsInserted(before, rows - 1);
+    }
+
+    /** 取得所选行（模型序）的记录 id；显示已过时（例如刚发生过压缩）时返回 null，调用方应先 refresh */
+    long[] idsAt(int[] modelRows) {
+        if (store.generation() != seenGeneration || store.modCount() != seenModCount) return null;
+        long[] ids = new long[modelRows.length];
+        for (int i = 0; i < modelRows.length; i++) {
+            int r = modelRows[i];
+            ids[i] = order != null ? order[r] : store.id(r);
+        }
+        return ids;
+    }
+
+    /**
+     * 只显示 ids 中的记录（文件顺序，HistoryIndex.search 的结果）；null 取消过滤。
+     * 有排序时在后台排好后才替换显示，避免先闪一下未排序的结果。
+     */
+    void setFilter(long[] ids) {
+        filter = ids;
+        if (sortColumn >= 0) {
+            startSort();
+            return;
+        }
+        sortTicket++;
+        order = ids;
+        orderMaxId = -1;
+        rows = ids != null ? ids.length : store.size();
+        pages.clear();
+        fireTableDataChanged();
+    }
+
+    boolean isFiltered() {
+        return filter != null;
+    }
+
+    /** 存活记录总数（不论是否过滤） */
+    int totalCount() {
+        return store.size();
+    }
+
+    /** 显示这些 id 时所依据的存储代数（用于 HistoryStore.delete） */
+    long generation() {
+        return seenGeneration;
+    }
+
+    /** 把排序之后追加的记录（id 大于 orderMaxId）按文件顺序接在末尾 */
+    private long[] withAppended(long[] ids) {
+        int size = store.size();
+        int first = size;
+        while (first > 0 && store.id(first - 1) > orderMaxId) first--;
+        if (first == size) return ids;
+        long[] tail = store.ids(first, size);
+        long[] out = Arrays.copyOf(ids, ids.length + tail.length);
+        System.arraycopy(tail, 0, out, ids.length, tail.length);
+        orderMaxId = tail[tail.length - 1];
+        return out;
+    }
+
+    /* ==============================
+     * 3) 排序
+     * ============================== */
+
+    private void toggleSort(int column) {
+        if (column == sortColumn && order != null) {
+            ascending = !ascending;
+            reverse(order);
+            pages.clear();
+            sorter.changed();
+            fireTableDataChanged();
+            return;
+        }
+        if (column == sortColumn) ascending = !ascending;
+        else ascending = true;
+        sortColumn = column;
+        sorter.changed();
+        startSort();
+    }
+
+    private void unsort() {
+        sortColumn = -1;
+        sortTicket++;
+        order = filter != null ? store.retainLive(filter) : null;
+        orderMaxId = -1;
+        rows = order != null ? order.length : store.size();
+        pages.clear();
+        sorter.changed();
+        fireTableDataChanged();
+    }
+
+    /** 在后台按 sortColumn 排序；较新的排序请求会使旧结果作废 */
+    private void startSort() {
+        final int ticket = ++sortTicket;
+        final int column = sortColumn;
+        final long generation = seenGeneration;
+        final long[] base = filter;
+        LookupExecutor.submit("History", () -> sortedIds(column, base), ids -> {
+            if (ticket != sortTicket || generation != store.generation()) return;
+            if (!ascending) reverse(ids);
+            orderMaxId = -1;
+            for (long id : ids) orderMaxId = Math.max(orderMaxId, id);
+            long[] shown = base != null ? store.retainLive(ids) : withAppended(store.retainLive(ids));
+            order = shown;
+            rows = shown.length;
+            seenModCount = store.modCount();
+            pages.clear();
+            fireTableDataChanged();
+        }, err -> System.err.println("[History] sort failed: " + err.getMessage()));
+    }
+
+    /**
+     * 读出 base（null 表示全部存活记录）的 column 列排序键，返回按升序排列的 id（稳定：键相同保持文件顺序）。
+     * 已被删除的 id 键为空，由调用方在显示前去掉。
+     */
+    private long[] sortedIds(int column, long[] base) throws IOException {
+        long[] ids = base != null ? base : store.ids(0, store.size());
+        int n = ids.length;
+        long[] numKeys = null;
+        byte[] text = null;
+        int[] textStart = null;
+        if (column == 3 || column == 4) {
+            numKeys = new long[n];
+        } else {
+            textStart = new int[n + 1];
+            text = new byte[Math.max(16, n * 24)];
+        }
+
+        int used = 0;
+        for (int from = 0; from < n; from += SORT_BATCH) {
+            int to = Math.min(n, from + SORT_BATCH);
+            List<String> lines = store.readIds(ids, from, to);
+            for (int i = from; i < to; i++) {
+                String line = lines.get(i - from);
+                HistoryRecord rec = HistoryRecord.parse(line);
+                if (numKeys != null) {
+                    numKeys[i] = numericKey(rec, column);
+                } else {
+                    byte[] b = textKey(rec, column).getBytes(StandardCharsets.UTF_8);
+                    if (used + b.length > text.length) {
+                        text = Arrays.copyOf(text, Math.max(text.length * 2, used + b.length));
+                    }
+                    textStart[i] = used;
+                    System.arraycopy(b, 0, text, used, b.length);
+                    used += b.length;
+                }
+            }
+        }
+        if (textStart != null) textStart[n] = used;
+
+        int[] idx = new int[n];
+        for (int i = 0; i < n; i++) idx[i] = i;
+        final long[] nk = numKeys;
+        final byte[] tx = text;
+        final int[] ts = textStart;
+        IntComparator cmp = nk != null
+                ? (a, b) -> Long.compare(nk[a], nk[b])
+                : (a, b) -> compareBytes(tx, ts[a], ts[a + 1], ts[b], ts[b + 1]);
+        mergeSort(idx, cmp);
+
+        long[] out = new long[n];
+        for (int i = 0; i < n; i++) out[i] = ids[idx[i]];
+        return out;
+    }
+
+    /** Qi-Anxin 按告警数、VirusTotal 按检出数再按引擎总数；没有结果的排在最前 */
+    private static long numericKey(HistoryRecord rec, int column) {
+        if (column == 3) return rec.qaxTotal;
+        int m = rec.vtMalicious, s = rec.vtSuspicious, h = rec.vtHarmless, u = rec.vtUndetected;
+        if (m < 0 || s < 0 || h < 0 || u < 0) return -1;
+        long num = (long) m + s;
+        return num * 1_000_000L + num + h + u;
+    }
+
+    private static String textKey(HistoryRecord rec, int column) {
+        Object v = cells(rec)[column];
+        return v == null ? "" : v.toString();
+    }
+
+    /** UTF-8 字节序比较（即码点顺序） */
+    private static int compareBytes(byte[] t, int as, int ae, int bs, int be) {
+        int la = ae - as, lb = be - bs;
+        int len = Math.min(la, lb);
+        for (int k = 0; k < len; k++) {
+            int x = t[as + k] & 0xFF, y = t[bs + k] & 0xFF;
+            if (x != y) return x - y;
+        }
+        return la - lb;
+    }
+
+    private interface IntComparator {
+        int compare(int a, int b);
+    }
+
+    /** 稳定的 int[] 归并排序（避免装箱成 Integer[]） */
+    private static void mergeSort(int[] a, IntComparator cmp) {
+        int n = a.length;
+        int[] src = a, dst = new int[n];
+        for (int width = 1; width < n; width *= 2) {
+            for (int lo = 0; lo < n; lo += 2 * width) {
+                int mid = Math.min(lo + width, n), hi = Math.min(lo + 2 * width, n);
+                int i = lo, j = mid, k = lo;
+                while (i < mid && j < hi) dst[k++] = cmp.compare(src[j], src[i]) < 0 ? src[j++] : src[i++];
+                while (i < mid) dst[k++] = src[i++];
+                while (j < hi) dst[k++] = src[j++];
+            }
+            int[] t = src;
+            src = dst;
+            dst = t;
+        }
+        if (src != a) System.arraycopy(src, 0, a, 0, n);
+    }
+
+    private static void reverse(long[] a) {
+        for (int i = 0, j = a.length - 1; i < j; i++, j--) {
+            long t = a[i];
+            a[i] = a[j];
+            a[j] = t;
+        }
+    }
+
+    /**
+     * 只负责表头交互的 RowSorter：排序由模型自己完成，行号在视图与模型之间一一对应。
+     */
+    private final class Sorter extends RowSorter<HistoryTableModel> {
+
+        @Override
+        public HistoryTableModel getModel() {
+            return HistoryTableModel.this;
+        }
+
+        @Override
+        public void toggleSortOrder(int column) {
+            toggleSort(column);
+        }
+
+        @Override
+        public int convertRowIndexToModel(int index) {
+            return index;
+        }
+
+        @Override
+        public int convertRowIndexToView(int index) {
+            return index;
+        }
+
+        @Override
+        public void setSortKeys(List<? extends SortKey> keys) {
+            if (keys == null || keys.isEmpty()) {
+                if (sortColumn >= 0) unsort();
+                return;
+            }
+            SortKey k = keys.get(0);
+            if (k.getSortOrder() == SortOrder.UNSORTED) {
+                if (sortColumn >= 0) unsort();
+                return;
+            }
+            boolean asc = k.getSortOrder() == SortOrder.ASCENDING;
+            if (k.getColumn() == sortColumn && asc == ascending) return;
+            if (k.getColumn() == sortColumn) {
+                toggleSort(sortColumn);
+            } else {
+                sortColumn = k.getColumn();
+                ascending = asc;
+                changed();
+                startSort();
+            }
+        }
+
+        @Override
+        public List<? extends SortKey> getSortKeys() {
+            if (sortColumn < 0) return Collections.emptyList();
+            List<SortKey> keys = new ArrayList<>(1);
+            keys.add(new SortKey(sortColumn, ascending ? SortOrder.ASCENDING : SortOrder.DESCENDING));
+            return keys;
+        }
+
+        @Override
+        public int getViewRowCount() {
+            return rows;
+        }
+
+        @Override
+        public int getModelRowCount() {
+            return rows;
+        }
+
+        @Override
+        public void modelStructureChanged() {
+        }
+
+        @Override
+        public void allRowsChanged() {
+        }
+
+        @Override
+        public void rowsInserted(int firstRow, int endRow) {
+        }
+
+        @Override
+        public void rowsDeleted(int firstRow, int endRow) {
+        }
+
+        @Override
+        public void rowsUpdated(int firstRow, int endRow) {
+        }
+
+        @Override
+        public void rowsUpdated(int firstRow, int endRow, int column) {
+        }
+
+        void changed() {
+            fireSortOrderChanged();
+        }
+    }
+}
@@ -26,6 +26,28 @@ public final class HttpProxyConfig {
     private static final int READ_TIMEOUT_MS    = 20_000;               // HttpURLConnection 读取超时
     private static final Duration CLIENT_CONNECT_TIMEOUT = Duration.ofSeconds(10); // HttpClient 连接超时
 
+    /* ==============================
+     * 2.1) 共享连接池（HttpClient 长连接复用）
+     * ============================== */
+    // conf.ini 可调：连接池上限（0 = 不限）与空闲连接回收时间（秒）
+    private static final String KEY_POOL_SIZE        = "HTTP_POOL_SIZE";
+    private static final String KEY_IDLE_TIMEOUT_SEC = "HTTP_IDLE_TIMEOUT_SEC";
+    private static final int DEFAULT_POOL_SIZE        = 16;
+    private static final int DEFAULT_IDLE_TIMEOUT_SEC = 300;
+
+    // JDK HttpClient 读取的系统属性（只在首次创建 HttpClient 前生效）
+    private static final String PROP_POOL_SIZE    = "jdk.httpclient.connectionPoolSize";
+    private static final String PROP_KEEPALIVE_TO = "jdk.httpclient.keepalive.timeout";
+
+    // conf.ini 可调：HTTP 版本（HTTP_2 经 ALPN 协商，服务端不支持时自动回落 HTTP/1.1）与是否请求 gzip 压缩
+    private static final String KEY_HTTP_VERSION = "HTTP_VERSION";
+    private static final String KEY_HTTP_GZIP    = "HTTP_GZIP";
+    private static volatile HttpClient.Version httpVersion = HttpClient.Version.HTTP_2;
+    private static volatile boolean gzip = true;
+
+    private static volatile HttpClient sharedClient;        // 进程内唯一的长连接客户端
+    private static volatile String sharedClientSignature = ""; // 构建 sharedClient 时的代理签名
+
     private HttpProxyConfig() {}
 
     /* ==============================
@@ -52,6 +74,9 @@ public final class HttpProxyConfig {
             String  u  = p.getProperty("PROXY_USER", "");
             String  pw = p.getProperty("PROXY_PASS", "");
 
+            applyPoolSettings(p);
+            applyProtocolSettings(p);
+
             // 与原逻辑一致：传入 char[]，空则 new char[0]
             configure(en, h, po, u, pw == null ? new char[0] : pw.toCharArray());
         } catch (IOException ignore) {
@@ -59,6 +84,45 @@ public final class HttpProxyConfig {
         }
     }
 
+    /**
+     * 把 conf.ini 中的连接池参数写入 JDK 系统属性。
+     * HttpClient 的连接池在首个客户端创建时读取这些属性，之后修改不再生效；
+     * 若启动参数已通过 -D 指定，则以启动参数为准。
+     */
+    private static void applyPoolSettings(Properties p) {
+        int poolSize = parseIntOrDefault(p.getProperty(KEY_POOL_SIZE), DEFAULT_POOL_SIZE);
+        int idleSec  = parseIntOrDefault(p.getProperty(KEY_IDLE_TIMEOUT_SEC), DEFAULT_IDLE_TIMEOUT_SEC);
+        if (System.getProperty(PROP_POOL_SIZE) == null) {
+            System.setProperty(PROP_POOL_SIZE, String.valueOf(Math.max(0, poolSize)));
+        }
+        if (System.getProperty(PROP_KEEPALIVE_TO) == null) {
+            System.setProperty(PROP_KEEPALIVE_TO, String.valueOf(Math.max(1, idleSec)));
+        }
+    }
+
+    /** HTTP 版本与压缩：只影响之后新建的客户端 / 发出的请求 */
+    private static void applyProtocolSettings(Properties p) {
+        String v = p.getProperty(KEY_HTTP_VERSION, "").trim().toUpperCase(java.util.Locale.ROOT);
+        httpVersion = ("HTTP_1_1".equals(v) || "HTTP/1.1".equals(v) || "1.1".equals(v))
+                ? HttpClient.Version.HTTP_1_1
+                : HttpClient.Version.HTTP_2;
+        gzip = Boolean.parseBoolean(p.getProperty(KEY_HTTP_GZIP, "true").trim());
+    }
+
+    /** 是否给请求加上 Accept-Encoding: gzip（响应由 ProviderHttp 边读边解压） */
+    public static boolean gzipEnabled() {
+        return gzip;
+    }
+
+    private static int parseIntOrDefault(String s, int def) {
+        if (s == null || s.trim().isEmpty()) return def;
+        try {
+            return Integer.parseInt(s.trim());
+        } catch (Exception e) {
+            return def;
+        }
+    }
+
     private static int parseIntSafe(String s) {
         try {
             return Integer.parseInt(s.trim());
@@ -83,6 +147,11 @@ public final class HttpProxyConfig {
             Authenticator.setDefault(buildProxyAuthenticator(username, password));
         }
         // 注：不主动清空已有默认 Authenticator，避免影响进程内其他组件（保持原注释语义）
+
+        // 代理参数变化时才丢弃共享客户端，下次取用时按新代理重建
+        if (!proxySignature().equals(sharedClientSignature)) {
+            sharedClient = null;
+        }
     }
 
     private static Authenticator buildProxyAuthenticator(String user, char[] pass) {
@@ -138,9 +207,38 @@ public final class HttpProxyConfig {
     /* ==============================
      * 9) java.net.http.HttpClient 构造：带可选代理与认证
      * ============================== */
+    // === For java.net.http.HttpClient: shared keep-alive client ===
+    /**
+     * 返回进程内共享的 HttpClient（长连接、连接池复用）。
+     * 仅当 configure(...) 改变了代理参数时才会重建。
+     */
+    public static HttpClient sharedHttpClient() {
+        HttpClient c = sharedClient;
+        if (c != null) return c;
+        synchronized (HttpProxyConfig.class) {
+            if (sharedClient == null) {
+                sharedClientSignature = proxySignature();
+                sharedClient = newHttpClient();
+            }
+            return sharedClient;
+        }
+    }
+
+    /** 当前代理配置的签名，用于判断共享客户端是否需要重建 */
+    private static String proxySignature() {
+        if (!proxyConfigured()) return "direct";
+        return host + ":" + port + "|" + username + "|" + java.util.Arrays.hashCode(password);
+    }
+
     // === For java.net.http.HttpClient: build a client that uses the proxy ===
     public static HttpClient newHttpClient() {
-        HttpClient.Builder b = HttpClient.newBuilder().connectTimeout(CLIENT_CONNECT_TIMEOUT);
+        HttpClient.Builder b = HttpClient.newBuilder()
+                .connectTimeout(CLIENT_CONNECT_TIMEOUT)
+                .version(httpVersion); // HTTP/2：同一主机的并发请求复用一条连接（多路复用）
+
+        // 包装默认 SSLContext，按主机统计新建 TLS 连接（见 ProviderHttp.hostStats）
+        javax.net.ssl.SSLContext ssl = ProviderHttp.trackingSslContext();
+        if (ssl != null) b.sslContext(ssl);
 
         if (proxyConfigured()) {
             b.proxy(toProxySelector());
@@ -1,16 +1,19 @@
-import java.io.BufferedReader;
 import java.io.FileInputStream;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
+import java.net.URI;
 import java.net.URLEncoder;
-import java.net.URL;
+import java.net.http.HttpRequest;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
 
 public final class IPQualityScore {
     private static String API_KEY = "";
-    private static final int CONNECT_TIMEOUT_MS = 10_000;
-    private static final int READ_TIMEOUT_MS    = 20_000;
+    private static final String PROVIDER = "IPQS";
+    private static final String DEFAULT_UA = "Mozilla/5.0 (Macintosh; Intel Mac OS X 10_15_7) "
+            + "AppleWebKit/537.36 (KHTML, like Gecko) "
+            + "Chrome/135.0.0.0 Safari/537.36";
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(20); // 连接超时由共享 HttpClient 统一设置
 
     static {
         // 从 conf.ini 加载 IPQS_KEY
@@ -21,7 +24,7 @@ public final class IPQualityScore {
             if (API_KEY == null || API_KEY.isEmpty()) {
                 System.err.println("Warning: IPQS_KEY not found in conf.ini, IPQualityScore will be unable to call the API.");
             } else {
-                System.out.println("IPQualityScore API Key loaded successfully");
+                System.err.println("IPQualityScore API Key loaded successfully");
             }
         } catch (Exception e) {
             System.err.println("Failed to read conf.ini (IPQualityScore): " + e.getMessage());
@@ -43,61 +46,61 @@ public final class IPQualityScore {
                                  String userAgent,
                                  int strictness,
                                  boolean allowPublicAccessPoints) {
-        HttpURLConnection conn = null;
-        try {
-            if (API_KEY == null || API_KEY.isEmpty()) {
-                return "Error: IPQS_KEY is empty";
-            }
-            if (ip == null || ip.isBlank()) {
-                return "Error: ip is empty";
-            }
-
-            // 组装 URL 与查询参数
-            String base = "https://ipqualityscore.com/api/json/ip/"
-                    + URLEncoder.encode(API_KEY, StandardCharsets.UTF_8)
-                    + "/" + URLEncoder.encode(ip.trim(), StandardCharsets.UTF_8);
+        return queryIpAsync(ip, userAgent, strictness, allowPublicAccessPoints, true).join().toLegacyString();
+    }
 
-            StringBuilder qs = new StringBuilder();
-            qs.append("?strictness=").append(Math.max(0, strictness));
-            qs.append("&allow_public_access_points=").append(allowPublicAccessPoints ? "true" : "false");
-            if (userAgent != null && !userAgent.isBlank()) {
-                qs.append("&user_agent=").append(URLEncoder.encode(userAgent, StandardCharsets.UTF_8));
-            }
+    /**
+     * queryIp 的异步版本：响应流直接解析为 Analyzer.IPQSResponse（ProviderResult.model），
+     * captureRaw=true 时同时保留响应原文
+     */
+    public static CompletableFuture<ProviderResult> queryIpAsync(String ip,
+                                                                 String userAgent,
+                                                                 int strictness,
+                                                                 boolean allowPublicAccessPoints,
+                                                                 boolean captureRaw) {
+        final String target = ip == null ? "" : ip.trim();
+        if (API_KEY == null || API_KEY.isEmpty()) {
+            return CompletableFuture.completedFuture(
+                    ProviderResult.rejected(PROVIDER, "ip", target, "Error: IPQS_KEY is empty"));
+        }
+        if (target.isEmpty()) {
+            return CompletableFuture.completedFuture(
+                    ProviderResult.rejected(PROVIDER, "ip", target, "Error: ip is empty"));
+        }
 
-            URL url = new URL(base + qs);
-            conn = HttpProxyConfig.open(url); // 经代理打开连接
+        // 组装 URL 与查询参数
+        String base = "https://ipqualityscore.com/api/json/ip/"
+                + URLEncoder.encode(API_KEY, StandardCharsets.UTF_8)
+                + "/" + URLEncoder.encode(target, StandardCharsets.UTF_8);
 
-            // 超时（在 HttpProxyConfig.open 里有全局默认的话，这里作为兜底/覆盖）
-            conn.setConnectTimeout(CONNECT_TIMEOUT_MS);
-            conn.setReadTimeout(READ_TIMEOUT_MS);
+        StringBuilder qs = new StringBuilder();
+        qs.append("?strictness=").append(Math.max(0, strictness));
+        qs.append("&allow_public_access_points=").append(allowPublicAccessPoints ? "true" : "false");
+        if (userAgent != null && !userAgent.isBlank()) {
+            qs.append("&user_agent=").append(URLEncoder.encode(userAgent, StandardCharsets.UTF_8));
+        }
 
-            conn.setRequestMethod("GET");
-            conn.setRequestProperty("Accept", "application/json");
+        // 走共享 HttpClient（代理 + 长连接复用）
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(base + qs))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Accept", "application/json")
+                .GET()
+                .build();
 
-            int code = conn.getResponseCode();
-            try (BufferedReader in = new BufferedReader(new InputStreamReader(
-                    (code >= 200 && code < 300) ? conn.getInputStream() : conn.getErrorStream(),
-                    StandardCharsets.UTF_8))) {
-                StringBuilder sb = new StringBuilder();
-                String line; while ((line = in.readLine()) != null) sb.append(line);
-                if (code < 200 || code >= 300) {
-                    return "Error: HTTP " + code + " " + sb;
-                }
-                return sb.toString();
-            }
-        } catch (Exception e) {
-            return "Exception: " + e.getMessage();
-        } finally {
-            if (conn != null) conn.disconnect();
-        }
+        return VerdictCache.lookup(PROVIDER, "ip", target, captureRaw, () ->
+                ProviderHttp.call(PROVIDER, API_KEY, "ip", target, request,
+                        Analyzer::IPQS_ParseJson, captureRaw));
     }
 
     /** 便捷重载：使用常见 UA、strictness=0、允许公共热点 */
     public static String queryIp(String ip) {
-        String defaultUA = "Mozilla/5.0 (Macintosh; Intel Mac OS X 10_15_7) "
-                + "AppleWebKit/537.36 (KHTML, like Gecko) "
-                + "Chrome/135.0.0.0 Safari/537.36";
-        return queryIp(ip, defaultUA, 0, true);
+        return queryIp(ip, DEFAULT_UA, 0, true);
+    }
+
+    /** 便捷重载的异步版本 */
+    public static CompletableFuture<ProviderResult> queryIpAsync(String ip) {
+        return queryIpAsync(ip, DEFAULT_UA, 0, true, false);
     }
 
     /** 运行时刷新 API Key（与 Setting 面板联动） */
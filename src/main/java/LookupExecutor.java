@@ -0,0 +1,270 @@
+import javax.swing.SwingUtilities;
+import java.io.FileInputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 界面发起的情报源查询所用的执行器，代替各处临时的 SwingWorker。
+ * 运行在 JDK 21+ 时使用虚拟线程，更早的 JDK 退回守护线程池。
+ * 总并发与每个情报源的并发（bulkhead）分别受限：任务先占本情报源的名额，再占全局名额，
+ * 因此某个情报源排满时，它排队的任务不会占着全局名额拖住其他情报源。
+ * 排队不占线程：名额空出时才把任务交给线程池。异步查询（submitAsync）只在线程上发起，
+ * 等待响应期间不占线程，future 完成时归还名额；任务结束后只把界面更新交给 EDT。
+ *
+ * conf.ini:
+ *   LOOKUP_MAX_CONCURRENCY   同时执行的查询任务上限（默认 32）
+ *   LOOKUP_BULKHEAD          每个情报源同时执行的任务上限（默认 8）
+ */
+public final class LookupExecutor {
+
+    private static final String INI_PATH = "conf.ini";
+
+    private static final ExecutorService EXECUTOR;
+    private static final boolean VIRTUAL;
+    private static final int GLOBAL_SIZE;
+    private static final int BULKHEAD_SIZE;
+
+    // 名额分配：LOCK 保护 globalRunning、GLOBAL_WAITING 与各 Bulkhead 的 running / waiting
+    private static final Object LOCK = new Object();
+    private static int globalRunning;
+    private static final ArrayDeque<Task> GLOBAL_WAITING = new ArrayDeque<>();  // 已占 bulkhead 名额、等全局名额
+    private static final Map<String, Bulkhead> BULKHEADS = new ConcurrentHashMap<>();
+    private static final AtomicLong COMPLETED = new AtomicLong();
+
+    static {
+        Properties p = new Properties();
+        try (FileInputStream in = new FileInputStream(INI_PATH)) {
+            p.load(in);
+        } catch (Exception ignore) {
+            // 没有 conf.ini 时使用默认值
+        }
+        GLOBAL_SIZE = Math.max(1, parseInt(p.getProperty("LOOKUP_MAX_CONCURRENCY"), 32));
+        BULKHEAD_SIZE = Math.max(1, parseInt(p.getProperty("LOOKUP_BULKHEAD"), 8));
+
+        ExecutorService vt = newVirtualThreadExecutor();
+        VIRTUAL = vt != null;
+        EXECUTOR = vt != null ? vt : Executors.newCachedThreadPool(daemonFactory("lookup"));
+    }
+
+    private LookupExecutor() {}
+
+    /** 单个情报源的并发隔离与计数 */
+    private static final class Bulkhead {
+        int running;                                       // 已占的名额（含等全局名额的任务）
+        final ArrayDeque<Task> waiting = new ArrayDeque<>();  // 等本情报源名额的任务
+        final AtomicInteger queued = new AtomicInteger();
+        final AtomicInteger active = new AtomicInteger();
+    }
+
+    /** 一个排队中的任务：拿到两级名额后调用 start，结束时必须调用 release 一次 */
+    private static final class Task {
+        final Bulkhead bulkhead;
+        final Runnable start;
+
+        Task(Bulkhead bulkhead, Runnable start) {
+            this.bulkhead = bulkhead;
+            this.start = start;
+        }
+    }
+
+    /* ==============================
+     * 1) 提交任务
+     * ============================== */
+
+    /**
+     * 在 provider 的 bulkhead 内执行 work（可阻塞，例如读写历史文件），
+     * 完成后在 EDT 上调用 onDone；work 抛出异常时在 EDT 上调用 onError。
+     */
+    public static <T> void submit(String provider, Callable<T> work,
+                                  Consumer<? super T> onDone, Consumer<Throwable> onError) {
+        enqueue(provider, task -> EXECUTOR.execute(() -> {
+            T value = null;
+            Throwable error = null;
+            try {
+                value = work.call();
+            } catch (Throwable t) {
+                error = t;
+            } finally {
+                release(task);
+            }
+            deliver(value, error, onDone, onError);
+        }));
+    }
+
+    /**
+     * 在 provider 的 bulkhead 内发起异步查询：work 在线程池上调用（只负责发起），
+     * 返回的 future 完成时归还名额，并在 EDT 上调用 onDone / onError。等待响应期间不占线程。
+     */
+    public static <T> void submitAsync(String provider, Supplier<? extends CompletableFuture<? extends T>> work,
+                                       Consumer<? super T> onDone, Consumer<Throwable> onError) {
+        enqueue(provider, task -> EXECUTOR.execute(() -> {
+            CompletableFuture<? extends T> f;
+            try {
+                f = work.get();
+            } catch (Throwable t) {
+                release(task);
+                deliver(null, t, onDone, onError);
+                return;
+            }
+            f.whenComplete((v, ex) -> {
+                release(task);
+                deliver(v, ex == null ? null : ProviderResult.unwrap(ex), onDone, onError);
+            });
+        }));
+    }
+
+    private static <T> void deliver(T value, Throwable error, Consumer<? super T> onDone, Consumer<Throwable> onError) {
+        SwingUtilities.invokeLater(() -> {
+            if (error == null) onDone.accept(value);
+            else onError.accept(error);
+        });
+    }
+
+    /** 排队：先占 bulkhead 名额，再占全局名额；两者都拿到后由 launcher 把任务交给线程池 */
+    private static void enqueue(String provider, Consumer<Task> launcher) {
+        Bulkhead b = BULKHEADS.computeIfAbsent(provider, k -> new Bulkhead());
+        b.queued.incrementAndGet();
+        Task[] self = new Task[1];
+        self[0] = new Task(b, () -> launcher.accept(self[0]));
+        boolean ready = false;
+        synchronized (LOCK) {
+            if (b.running < BULKHEAD_SIZE) {
+                b.running++;
+                if (globalRunning < GLOBAL_SIZE) {
+                    globalRunning++;
+                    ready = true;
+                } else {
+                    GLOBAL_WAITING.add(self[0]);
+                }
+            } else {
+                b.waiting.add(self[0]);
+            }
+        }
+        if (ready) start(self[0]);
+    }
+
+    /** 任务结束：归还两级名额，本情报源的下一个任务转去等全局名额，再按先后启动能启动的任务 */
+    private static void release(Task task) {
+        Bulkhead b = task.bulkhead;
+        b.active.decrementAndGet();
+        COMPLETED.incrementAndGet();
+        List<Task> ready = new ArrayList<>();
+        synchronized (LOCK) {
+            globalRunning--;
+            b.running--;
+            Task next = b.waiting.poll();
+            if (next != null) {
+                b.running++;
+                GLOBAL_WAITING.add(next);
+            }
+            while (globalRunning < GLOBAL_SIZE && !GLOBAL_WAITING.isEmpty()) {
+                globalRunning++;
+                ready.add(GLOBAL_WAITING.poll());
+            }
+        }
+        for (Task t : ready) start(t);
+    }
+
+    private static void start(Task task) {
+        task.bulkhead.queued.decrementAndGet();
+        task.bulkhead.active.incrementAndGet();
+        task.start.run();
+    }
+
+    /** 执行 ProviderHttp 等内部的阻塞读流任务（不经过名额限制） */
+    static ExecutorService ioExecutor() {
+        return EXECUTOR;
+    }
+
+    /* ==============================
+     * 2) 指标
+     * ============================== */
+
+    public static boolean isVirtual() {
+        return VIRTUAL;
+    }
+
+    public static int activeCount() {
+        int n = 0;
+        for (Bulkhead b : BULKHEADS.values()) n += b.active.get();
+        return n;
+    }
+
+    public static int queuedCount() {
+        int n = 0;
+        for (Bulkhead b : BULKHEADS.values()) n += b.queued.get();
+        return n;
+    }
+
+    public static long completedCount() {
+        return COMPLETED.get();
+    }
+
+    /** 单行摘要，例如 "virtual threads, active=2, queued=0, done=37 (IPQS 1/8, QAX 1/8)" */
+    public static String describeMetrics() {
+        StringBuilder per = new StringBuilder();
+        for (Map.Entry<String, Bulkhead> e : new TreeMap<>(BULKHEADS).entrySet()) {
+            Bulkhead b = e.getValue();
+            int a = b.active.get();
+            int q = b.queued.get();
+            if (a == 0 && q == 0) continue;
+            if (per.length() > 0) per.append(", ");
+            per.append(e.getKey()).append(' ').append(a).append('/').append(BULKHEAD_SIZE);
+            if (q > 0) per.append(" +").append(q).append(" queued");
+        }
+        return (VIRTUAL ? "virtual threads" : "platform threads")
+                + ", active=" + activeCount()
+                + ", queued=" + queuedCount()
+                + ", done=" + completedCount()
+                + (per.length() > 0 ? " (" + per + ")" : "");
+    }
+
+    /* ==============================
+     * 3) 内部实现
+     * ============================== */
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor() 只在 JDK 21+ 存在；项目仍以 Java 11 为编译目标，
+     * 因此通过反射获取，不可用时返回 null。
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+        } catch (Throwable t) {
+            return null;
+        }
+    }
+
+    static java.util.concurrent.ThreadFactory daemonFactory(String name) {
+        AtomicInteger seq = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, name + "-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    private static int parseInt(String s, int def) {
+        if (s == null || s.trim().isEmpty()) return def;
+        try {
+            return Integer.parseInt(s.trim());
+        } catch (Exception e) {
+            return def;
+        }
+    }
+}
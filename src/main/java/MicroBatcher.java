@@ -0,0 +1,234 @@
+import java.io.FileInputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 微批调度：把短时间内到达的同一批量接口的单条查询攒成一次批量请求（目前只有 QAX CheckUrls）。
+ * 第一条到达后等待 MICROBATCH_WINDOW_MS，或攒满上限立即发出；窗口内只有一条时仍走原来的单条请求，
+ * 因此界面上的单次检索最多多等一个窗口（默认几毫秒）。
+ * 只有批量结果能按请求位置一一拆回、与单条查询等价的接口才能经过这里（QAX compromise 不满足，始终单条请求）；
+ * 不支持批量的接口由 RateLimiter 按速率逐个发出。
+ *
+ * conf.ini:
+ *   MICROBATCH_WINDOW_MS   攒批窗口（毫秒，默认 5；0 表示关闭微批，全部单条请求）
+ *   MICROBATCH_MAX_ITEMS   每批最多条数（默认 100；同时不超过各接口自身的批量上限）
+ */
+public final class MicroBatcher {
+
+    private static final String INI_PATH = "conf.ini";
+
+    private static volatile long windowMs = 5;
+    private static volatile int maxItems = 100;
+
+    private static final Map<String, Lane> LANES = new ConcurrentHashMap<>();
+
+    private static final ScheduledExecutorService SCHEDULER =
+            Executors.newSingleThreadScheduledExecutor(LookupExecutor.daemonFactory("micro-batcher"));
+
+    static {
+        loadFromIni(INI_PATH);
+    }
+
+    private MicroBatcher() {}
+
+    /** 一条排队中的查询 */
+    private static final class Item {
+        final String indicator;
+        final Supplier<CompletableFuture<ProviderResult>> single;
+        final CancellationToken token;
+        final CompletableFuture<ProviderResult> result = new CompletableFuture<>();
+
+        Item(String indicator, Supplier<CompletableFuture<ProviderResult>> single, CancellationToken token) {
+            this.indicator = indicator;
+            this.single = single;
+            this.token = token;
+        }
+    }
+
+    /** 单个 情报源/接口 的攒批队列 */
+    private static final class Lane {
+        final String provider;
+        final String endpoint;
+        final int limit;
+        final Function<List<String>, CompletableFuture<Map<String, ProviderResult>>> sendBatch;
+        final List<Item> pending = new ArrayList<>();
+        ScheduledFuture<?> timer;
+
+        final LongAdder batches = new LongAdder();   // 发出的批量请求
+        final LongAdder batched = new LongAdder();   // 经批量请求完成的查询
+        final LongAdder singles = new LongAdder();   // 窗口内只有一条、按单条发出
+
+        Lane(String provider, String endpoint, int limit,
+             Function<List<String>, CompletableFuture<Map<String, ProviderResult>>> sendBatch) {
+            this.provider = provider;
+            this.endpoint = endpoint;
+            this.limit = limit;
+            this.sendBatch = sendBatch;
+        }
+
+        /** 取走当前攒下的全部查询 */
+        synchronized List<Item> drain() {
+            if (timer != null) {
+                timer.cancel(false);
+                timer = null;
+            }
+            List<Item> items = new ArrayList<>(pending);
+            pending.clear();
+            return items;
+        }
+    }
+
+    /* ==============================
+     * 1) 请求入口
+     * ============================== */
+
+    /**
+     * 把一条查询放进 provider/endpoint 的攒批队列。
+     * batchLimit 为接口自身的每批上限，sendBatch 发送一批（不查缓存），single 为单条请求。
+     * 调用线程上绑定的 CancellationToken 取消时，未发出的查询直接出队，已发出的只丢弃自己的结果。
+     */
+    public static CompletableFuture<ProviderResult> submit(
+            String provider, String endpoint, String indicator, int batchLimit,
+            Function<List<String>, CompletableFuture<Map<String, ProviderResult>>> sendBatch,
+            Supplier<CompletableFuture<ProviderResult>> single) {
+        int limit = Math.min(batchLimit, maxItems);
+        if (windowMs <= 0 || limit <= 1) return single.get();
+
+        CancellationToken token = CancellationToken.current();
+        if (token.isCancelled()) {
+            return CompletableFuture.completedFuture(ProviderResult.cancelled(provider, endpoint, indicator));
+        }
+
+        Lane lane = LANES.computeIfAbsent(provider + "/" + endpoint, k -> new Lane(provider, endpoint, limit, sendBatch));
+        Item item = new Item(indicator, single, token);
+        Runnable unregister = token.onCancel(() -> {
+            synchronized (lane) {
+                lane.pending.remove(item);
+            }
+            item.result.complete(ProviderResult.cancelled(provider, endpoint, indicator));
+        });
+        item.result.whenComplete((r, ex) -> unregister.run());
+
+        List<Item> full = null;
+        synchronized (lane) {
+            lane.pending.add(item);
+            if (lane.pending.size() >= lane.limit) {
+                // 攒满：在锁内取走，保证每批不超过上限
+                full = lane.drain();
+            } else if (lane.timer == null) {
+                lane.timer = SCHEDULER.schedule(() -> send(lane, lane.drain()), windowMs, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (full != null) {
+            List<Item> batch = full;
+            SCHEDULER.execute(() -> send(lane, batch));
+        }
+        return item.result;
+    }
+
+    /** 发出攒下的查询：只有一条时按单条请求，否则按指标去重后发一次批量请求 */
+    private static void send(Lane lane, List<Item> items) {
+        items.removeIf(i -> i.result.isDone());
+        if (items.isEmpty()) return;
+
+        if (items.size() == 1) {
+            lane.singles.increment();
+            Item only = items.get(0);
+            CompletableFuture<ProviderResult> f;
+            try {
+                f = only.token.callWith(only.single::get);
+            } catch (Exception e) {
+                f = CompletableFuture.completedFuture(ProviderResult.failure(lane.provider, lane.endpoint,
+                        only.indicator, e, 0));
+            }
+            f.whenComplete((r, ex) -> complete(lane, only, r, ex));
+            return;
+        }
+
+        Map<String, List<Item>> byIndicator = new LinkedHashMap<>();
+        for (Item i : items) byIndicator.computeIfAbsent(i.indicator, k -> new ArrayList<>()).add(i);
+        lane.batches.increment();
+        lane.batched.add(items.size());
+
+        CompletableFuture<Map<String, ProviderResult>> f;
+        try {
+            f = lane.sendBatch.apply(new ArrayList<>(byIndicator.keySet()));
+        } catch (RuntimeException e) {
+            f = CompletableFuture.failedFuture(e);
+        }
+        f.whenComplete((results, ex) -> {
+            for (Map.Entry<String, List<Item>> e : byIndicator.entrySet()) {
+                ProviderResult r = results == null ? null : results.get(e.getKey());
+                if (r == null && ex == null) {
+                    r = ProviderResult.rejected(lane.provider, lane.endpoint, e.getKey(),
+                            "Error: no result in batch response");
+                }
+                for (Item i : e.getValue()) complete(lane, i, r, ex);
+            }
+        });
+    }
+
+    private static void complete(Lane lane, Item item, ProviderResult r, Throwable ex) {
+        item.result.complete(ex == null ? r
+                : ProviderResult.failure(lane.provider, lane.endpoint, item.indicator, ex, 0));
+    }
+
+    /* ==============================
+     * 2) 统计
+     * ============================== */
+
+    /** 多行文本形式的统计，例如 "QAX/check_urls: 12 batches, 340 lookups (avg 28.3), 5 single" */
+    public static String describeStats() {
+        if (windowMs <= 0) return "Micro-batching disabled";
+        if (LANES.isEmpty()) return "No batched lookups";
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Lane> e : new TreeMap<>(LANES).entrySet()) {
+            Lane l = e.getValue();
+            long b = l.batches.sum();
+            long n = l.batched.sum();
+            sb.append(e.getKey())
+                    .append(": ").append(b).append(" batches, ").append(n).append(" lookups")
+                    .append(b > 0 ? String.format(" (avg %.1f)", (double) n / b) : "")
+                    .append(", ").append(l.singles.sum()).append(" single")
+                    .append('\n');
+        }
+        return sb.toString().trim();
+    }
+
+    /* ==============================
+     * 3) 配置
+     * ============================== */
+
+    private static void loadFromIni(String path) {
+        Properties p = new Properties();
+        try (FileInputStream in = new FileInputStream(path)) {
+            p.load(in);
+        } catch (Exception ignore) {
+            // 没有 conf.ini 时使用默认值
+        }
+        windowMs = Math.max(0, parseLong(p.getProperty("MICROBATCH_WINDOW_MS"), 5));
+        maxItems = (int) Math.max(1, parseLong(p.getProperty("MICROBATCH_MAX_ITEMS"), 100));
+    }
+
+    private static long parseLong(String s, long def) {
+        if (s == null || s.trim().isEmpty()) return def;
+        try {
+            return Long.parseLong(s.trim());
+        } catch (Exception e) {
+            return def;
+        }
+    }
+}
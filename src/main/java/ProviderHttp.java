@@ -0,0 +1,565 @@
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLContextSpi;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLServerSocketFactory;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.TrustManager;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 各情报源共用的请求通道：统一走 HttpProxyConfig 的共享 HttpClient（长连接复用），
+ * 并按主机统计请求数与 TLS 握手数，用来确认连接是否真的被复用。
+ */
+public final class ProviderHttp {
+
+    private static final Map<String, HostStats> STATS = new ConcurrentHashMap<>();
+
+    /** 读取响应流的执行器：与 LookupExecutor 共用（JDK 21+ 为虚拟线程，否则为守护线程池） */
+    private static final ExecutorService IO_EXECUTOR = LookupExecutor.ioExecutor();
+
+    private ProviderHttp() {}
+
+    /* ==============================
+     * 1) 请求入口
+     * ============================== */
+
+    /** 从响应流直接构建模型对象（不经过中间 String） */
+    @FunctionalInterface
+    public interface BodyParser {
+        Object parse(InputStream in) throws IOException;
+    }
+
+    /** 非阻塞发送，响应体以 InputStream 形式交给调用方 */
+    public static CompletableFuture<HttpResponse<InputStream>> sendAsync(HttpRequest request) {
+        statsFor(request.uri().getHost()).requests.increment();
+        HttpRequest r = HttpProxyConfig.gzipEnabled() ? withAcceptGzip(request) : request;
+        return HttpProxyConfig.sharedHttpClient().sendAsync(r, HttpResponse.BodyHandlers.ofInputStream());
+    }
+
+    /**
+     * 请求未指定 Accept-Encoding 时补上 gzip。HttpRequest 不可变，Java 11 也没有复制用的 newBuilder(request, filter)，
+     * 因此按原请求逐项重建（方法、请求体、请求头、超时、版本）。
+     */
+    static HttpRequest withAcceptGzip(HttpRequest request) {
+        if (request.headers().firstValue("Accept-Encoding").isPresent()) return request;
+        HttpRequest.Builder b = HttpRequest.newBuilder(request.uri())
+                .method(request.method(), request.bodyPublisher().orElse(HttpRequest.BodyPublishers.noBody()))
+                .expectContinue(request.expectContinue());
+        request.headers().map().forEach((name, values) -> values.forEach(v -> b.header(name, v)));
+        request.timeout().ifPresent(b::timeout);
+        request.version().ifPresent(b::version);
+        return b.header("Accept-Encoding", "gzip").build();
+    }
+
+    /** 每次尝试（含重试）发出前经过的关卡，例如按限流令牌延后或拒绝 */
+    @FunctionalInterface
+    interface Gate {
+        CompletableFuture<ProviderResult> pass(Supplier<CompletableFuture<ProviderResult>> send);
+    }
+
+    private static final Gate NO_GATE = Supplier::get;
+
+    /**
+     * 各情报源在缓存未命中时的统一入口：熔断（CircuitBreaker）→ 发送与重试（exchange），
+     * 每次尝试（含重试）都先经限流（RateLimiter）取令牌、计入每日配额，429 后的重试也等令牌补充。
+     * 熔断打开时不消耗限流令牌；对冲请求（HedgePolicy）只在能立即拿到令牌时发出。
+     * 调用线程上绑定的 CancellationToken（见 CancellationToken.callWith）随请求一路传递。
+     */
+    public static CompletableFuture<ProviderResult> call(String provider, String apiKey, String endpoint, String query,
+                                                         HttpRequest request, BodyParser parser, boolean captureRaw) {
+        final CancellationToken token = CancellationToken.current();
+        Gate limiter = send -> RateLimiter.submit(provider, apiKey, endpoint, query, token, send);
+        CompletableFuture<ProviderResult> f = CircuitBreaker.guard(provider, endpoint, query, () ->
+                exchange(provider, endpoint, query, request, parser, captureRaw,
+                        () -> RateLimiter.tryAcquire(provider, apiKey), limiter, token));
+        if (token == CancellationToken.NONE) return f;
+
+        // 取消时立即返回，不等限流排队或重试退避结束（到点后 attempt 看到已取消，不会再发请求）
+        CompletableFuture<ProviderResult> out = new CompletableFuture<>();
+        Runnable unregister = token.onCancel(() -> out.complete(ProviderResult.cancelled(provider, endpoint, query)));
+        f.whenComplete((r, ex) -> {
+            unregister.run();
+            if (ex != null) out.completeExceptionally(ex);
+            else out.complete(r);
+        });
+        return out;
+    }
+
+    /**
+     * 非阻塞发送并折叠为 ProviderResult：返回的 future 不会以异常结束，
+     * 失败信息放在 ProviderResult.error 中。
+     * 2xx 响应由 parser 直接从 socket 流解析为模型；captureRaw=true 时同时保留原文
+     * （Analysis 面板的 JSON 视图、旧的 String 接口需要）。非 2xx 的错误体总是读为字符串。
+     * 瞬时失败按 RetryPolicy 退避重试；结果中的 attempts / elapsedMs 为全部尝试的合计（不含限流排队）。
+     */
+    public static CompletableFuture<ProviderResult> exchange(String provider, String endpoint, String query,
+                                                             HttpRequest request, BodyParser parser,
+                                                             boolean captureRaw) {
+        return exchange(provider, endpoint, query, request, parser, captureRaw, null, NO_GATE, CancellationToken.NONE);
+    }
+
+    /**
+     * hedgePermit 非空时允许对冲：到点后由它决定能否再发一个请求（例如是否拿得到限流令牌）。
+     * gate 包住每一次尝试（首次与每次重试）；它拒绝重试时返回上一次真实的结果。
+     * 在 gate 中排队的时间不计入耗时，也不占用 RetryPolicy 的重试预算。
+     * token 被取消时中止在途请求、不再重试，结果为 "Error: cancelled"。
+     */
+    static CompletableFuture<ProviderResult> exchange(String provider, String endpoint, String query,
+                                                      HttpRequest request, BodyParser parser,
+                                                      boolean captureRaw, BooleanSupplier hedgePermit,
+                                                      Gate gate, CancellationToken token) {
+        final long start = System.nanoTime();
+        return attempt(provider, endpoint, query, request, parser, captureRaw, hedgePermit, gate, token, start, 1, null)
+                .thenApply(r -> {
+                    RetryPolicy.recordOutcome(r);
+                    return r;
+                });
+    }
+
+    /**
+     * 第 n 次尝试：经 gate 发出一次请求，按 RetryPolicy 决定是否退避后再来；previous 为上一次的结果。
+     * start 为计时起点，每次在 gate 中排队多久就后移多久，因此 elapsedMs(start) 只含收发与退避。
+     */
+    private static CompletableFuture<ProviderResult> attempt(String provider, String endpoint, String query,
+                                                             HttpRequest request, BodyParser parser,
+                                                             boolean captureRaw, BooleanSupplier hedgePermit,
+                                                             Gate gate, CancellationToken token, long start, int n,
+                                                             ProviderResult previous) {
+        if (token.isCancelled()) {
+            // 排队（限流/退避）期间已被取消：不再发出
+            return CompletableFuture.completedFuture(ProviderResult.cancelled(provider, endpoint, query));
+        }
+        final long[] retryAfterMs = {-1};
+        final long entered = System.nanoTime();
+        final long[] admitted = {0};   // gate 放行的时刻；0 表示没有放行
+        return gate.pass(() -> {
+            admitted[0] = System.nanoTime();
+            return sendOnce(provider, endpoint, query, request, parser, captureRaw, hedgePermit,
+                    token, retryAfterMs);
+        }).thenCompose(r -> {
+            final long begin = admitted[0] == 0 ? start : start + (admitted[0] - entered);
+            if (token.isCancelled()) {
+                // attempts 保持 0：熔断器、重试统计与缓存都不把它当作上游的结果
+                return CompletableFuture.completedFuture(ProviderResult.cancelled(provider, endpoint, query));
+            }
+            if (r.attempts == 0 && r.cause == null) {
+                // gate 拒绝（配额用完、排队过长），本次没有发出：重试时交回上一次真实的结果
+                return CompletableFuture.completedFuture(
+                        previous == null ? r : previous.withAttempts(n - 1, elapsedMs(begin)));
+            }
+            long delay = RetryPolicy.nextDelayMillis(r, n, retryAfterMs[0], elapsedMs(begin));
+            if (delay < 0) {
+                if (n > 1 && !r.isOk()) {
+                    // 每个请求只在重试用尽后记一行，批量模式下不刷屏（逐次计数见 RetryPolicy.describeStats）
+                    System.err.println("[Retry] " + provider + "/" + endpoint + "(" + query + ") gave up after "
+                            + n + " attempts: " + (r.statusCode > 0 ? "HTTP " + r.statusCode : r.error));
+                }
+                return CompletableFuture.completedFuture(r.withAttempts(n, elapsedMs(begin)));
+            }
+            RetryPolicy.recordRetry(provider, delay);
+            Executor later = CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS, IO_EXECUTOR);
+            return CompletableFuture.runAsync(() -> {}, later)
+                    .thenCompose(v -> attempt(provider, endpoint, query, request, parser, captureRaw,
+                            hedgePermit, gate, token, begin, n + 1, r));
+        });
+    }
+
+    /** 发出一次请求并读取响应；retryAfterMs[0] 带回响应中的 Retry-After */
+    private static CompletableFuture<ProviderResult> sendOnce(String provider, String endpoint, String query,
+                                                              HttpRequest request, BodyParser parser,
+                                                              boolean captureRaw, BooleanSupplier hedgePermit,
+                                                              CancellationToken token, long[] retryAfterMs) {
+        if (token.isCancelled()) {
+            return CompletableFuture.completedFuture(ProviderResult.cancelled(provider, endpoint, query));
+        }
+        final long sent = System.nanoTime();
+        // 读流会阻塞，放到独立的 IO 线程上，避免占用 HttpClient 的内部线程或调用方线程
+        return send(provider, endpoint, request, hedgePermit, token).handleAsync((resp, ex) -> {
+            if (token.isCancelled()) {
+                if (resp != null) closeQuietly(resp.body());
+                return ProviderResult.cancelled(provider, endpoint, query);
+            }
+            if (ex != null) {
+                return ProviderResult.failure(provider, endpoint, query, ex, elapsedMs(sent));
+            }
+            retryAfterMs[0] = RetryPolicy.retryAfterMillis(resp.headers());
+            // 读流期间被取消：关闭响应流，解析器随即以 IOException 结束
+            Runnable unregister = token.onCancel(() -> closeQuietly(resp.body()));
+            try {
+                ProviderResult r = readResponse(provider, endpoint, query, resp, parser, captureRaw, sent);
+                return token.isCancelled() ? ProviderResult.cancelled(provider, endpoint, query) : r;
+            } finally {
+                unregister.run();
+            }
+        }, IO_EXECUTOR);
+    }
+
+    /**
+     * 发送一次请求；允许对冲且已有足够的耗时样本时，超过 p90 仍未拿到响应头就再发一个相同请求，
+     * 先拿到响应者胜出，另一个取消（若已返回则直接关闭其响应流）。
+     * token 被取消时取消所有在途的发送。
+     */
+    private static CompletableFuture<HttpResponse<InputStream>> send(String provider, String endpoint,
+                                                                    HttpRequest request,
+                                                                    BooleanSupplier hedgePermit,
+                                                                    CancellationToken token) {
+        final long t0 = System.nanoTime();
+        long delay = hedgePermit == null ? -1 : HedgePolicy.hedgeDelayMillis(provider, endpoint);
+        if (delay < 0) {
+            CompletableFuture<HttpResponse<InputStream>> f = sendAsync(request);
+            Runnable unregister = token.onCancel(() -> f.cancel(true));
+            return f.whenComplete((resp, ex) -> {
+                unregister.run();
+                if (resp != null) HedgePolicy.recordLatency(provider, endpoint, elapsedMs(t0));
+            });
+        }
+
+        Race race = new Race(provider, endpoint, t0);
+        race.add(sendAsync(request), false);
+        Runnable unregister = token.onCancel(race::cancel);
+        race.result.whenComplete((resp, ex) -> unregister.run());
+        CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS, IO_EXECUTOR).execute(() -> {
+            if (race.result.isDone() || token.isCancelled()) return;
+            // 先占对冲额度再取限流令牌（令牌会计入每日配额，拿到就不退）；拿不到令牌时退回额度
+            if (!HedgePolicy.tryStart(provider)) return;
+            if (!hedgePermit.getAsBoolean()) {
+                HedgePolicy.cancelStart(provider);
+                return;
+            }
+            race.add(sendAsync(request), true);
+        });
+        return race.result;
+    }
+
+    private static void closeQuietly(InputStream in) {
+        try {
+            in.close();
+        } catch (IOException ignore) {
+        }
+    }
+
+    /** 原请求与对冲请求的竞速：第一个拿到响应的完成 result；全部失败时以第一个异常结束 */
+    private static final class Race {
+        final CompletableFuture<HttpResponse<InputStream>> result = new CompletableFuture<>();
+        private final List<CompletableFuture<HttpResponse<InputStream>>> calls = new ArrayList<>();
+        private final String provider;
+        private final String endpoint;
+        private final long t0;
+        private int outstanding;
+        private Throwable firstError;
+
+        Race(String provider, String endpoint, long t0) {
+            this.provider = provider;
+            this.endpoint = endpoint;
+            this.t0 = t0;
+        }
+
+        void add(CompletableFuture<HttpResponse<InputStream>> call, boolean hedge) {
+            synchronized (this) {
+                calls.add(call);
+                outstanding++;
+            }
+            call.whenComplete((resp, ex) -> onComplete(call, resp, ex, hedge));
+        }
+
+        /** 整体取消：取消所有发送，result 以 CancellationException 结束 */
+        void cancel() {
+            List<CompletableFuture<HttpResponse<InputStream>>> all;
+            synchronized (this) {
+                all = new ArrayList<>(calls);
+            }
+            result.cancel(true);
+            for (CompletableFuture<HttpResponse<InputStream>> c : all) c.cancel(true);
+        }
+
+        private void onComplete(CompletableFuture<HttpResponse<InputStream>> self,
+                                HttpResponse<InputStream> resp, Throwable ex, boolean hedge) {
+            List<CompletableFuture<HttpResponse<InputStream>>> losers;
+            synchronized (this) {
+                outstanding--;
+                if (result.isDone()) {
+                    // 输掉的一方：丢弃响应（关闭流会中止该连接上的传输）
+                    if (resp != null) discard(resp);
+                    return;
+                }
+                if (resp == null) {
+                    if (firstError == null) firstError = ex;
+                    if (outstanding == 0) result.completeExceptionally(firstError);
+                    return;
+                }
+                result.complete(resp);
+                losers = new ArrayList<>(calls);
+                losers.remove(self);
+            }
+            HedgePolicy.recordLatency(provider, endpoint, elapsedMs(t0));
+            if (hedge) HedgePolicy.recordWin(provider);
+            for (CompletableFuture<HttpResponse<InputStream>> c : losers) c.cancel(true);
+        }
+
+        private static void discard(HttpResponse<InputStream> resp) {
+            closeQuietly(resp.body());
+        }
+    }
+
+    private static ProviderResult readResponse(String provider, String endpoint, String query,
+                                               HttpResponse<InputStream> resp, BodyParser parser,
+                                               boolean captureRaw, long start) {
+        int code = resp.statusCode();
+        try (InputStream in = decode(resp)) {
+            if (code < 200 || code >= 300) {
+                String err = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                return ProviderResult.response(provider, endpoint, query, code, err, null, elapsedMs(start));
+            }
+
+            ByteArrayOutputStream raw = captureRaw ? new ByteArrayOutputStream(8192) : null;
+            InputStream src = new BodyInputStream(in, raw);
+            Object model = null;
+            IOException parseError = null;
+            try {
+                model = parser.parse(src);
+            } catch (IOException e) {
+                parseError = e;
+            }
+            // 读到 EOF 再关闭：提前关闭会中断响应，连接无法放回连接池；同时补齐原文尾部
+            src.transferTo(OutputStream.nullOutputStream());
+
+            String body = raw == null ? null : raw.toString(StandardCharsets.UTF_8);
+            if (parseError != null) {
+                return ProviderResult.unparseable(provider, endpoint, query, code, body, parseError, elapsedMs(start));
+            }
+            return ProviderResult.response(provider, endpoint, query, code, body, model, elapsedMs(start));
+        } catch (Exception e) {
+            return ProviderResult.failure(provider, endpoint, query, e, elapsedMs(start));
+        }
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000L;
+    }
+
+    /**
+     * 响应体：统计线上字节（压缩后）与解码后字节，Content-Encoding 为 gzip 时边读边解压。
+     * 其他编码不会出现（只请求了 gzip），按原样返回。
+     */
+    private static InputStream decode(HttpResponse<InputStream> resp) throws IOException {
+        HostStats stats = statsFor(resp.request().uri().getHost());
+        if (resp.version() == HttpClient.Version.HTTP_2) stats.http2.increment();
+        InputStream wire = new CountingInputStream(resp.body(), stats.wireBytes);
+        String enc = resp.headers().firstValue("Content-Encoding").orElse("").trim().toLowerCase(Locale.ROOT);
+        boolean empty = resp.headers().firstValueAsLong("Content-Length").orElse(-1) == 0;
+        if (empty || (!"gzip".equals(enc) && !"x-gzip".equals(enc))) {
+            return new CountingInputStream(wire, stats.decodedBytes);
+        }
+        stats.gzipped.increment();
+        return new CountingInputStream(new GZIPInputStream(wire, 8192), stats.decodedBytes);
+    }
+
+    /** 读取时累加字节数 */
+    private static final class CountingInputStream extends FilterInputStream {
+        private final LongAdder counter;
+
+        CountingInputStream(InputStream in, LongAdder counter) {
+            super(in);
+            this.counter = counter;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) counter.increment();
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buf, int off, int len) throws IOException {
+            int n = super.read(buf, off, len);
+            if (n > 0) counter.add(n);
+            return n;
+        }
+    }
+
+    /**
+     * 交给解析器的响应流：可选地边读边把字节复制到旁路缓冲区（原文留存）；
+     * 忽略 close()（Jackson 默认会关闭输入源），由 readResponse 读完后统一关闭。
+     */
+    private static final class BodyInputStream extends FilterInputStream {
+        private final OutputStream copy;
+
+        BodyInputStream(InputStream in, OutputStream copy) {
+            super(in);
+            this.copy = copy;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0 && copy != null) copy.write(b);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0 && copy != null) copy.write(b, off, n);
+            return n;
+        }
+
+        @Override
+        public void close() {
+            // no-op
+        }
+    }
+
+    /* ==============================
+     * 2) 连接复用统计
+     * ============================== */
+
+    /** 单个主机的计数：requests 为发出的请求数，handshakes 为新建 TLS 连接数 */
+    public static final class HostStats {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder handshakes = new LongAdder();
+        private final LongAdder http2 = new LongAdder();         // 以 HTTP/2 完成的响应
+        private final LongAdder gzipped = new LongAdder();       // gzip 压缩的响应
+        private final LongAdder wireBytes = new LongAdder();     // 响应体线上字节（压缩后）
+        private final LongAdder decodedBytes = new LongAdder();  // 响应体解压后字节
+
+        public long requests()     { return requests.sum(); }
+        public long handshakes()   { return handshakes.sum(); }
+        public long http2()        { return http2.sum(); }
+        public long gzipped()      { return gzipped.sum(); }
+        public long wireBytes()    { return wireBytes.sum(); }
+        public long decodedBytes() { return decodedBytes.sum(); }
+
+        /** 复用次数 = 请求数 - 新建连接数（不小于 0） */
+        public long reused()     { return Math.max(0, requests() - handshakes()); }
+    }
+
+    /** 按主机名排序的统计快照 */
+    public static Map<String, HostStats> hostStats() {
+        return new TreeMap<>(STATS);
+    }
+
+    /** 多行文本形式的统计，供 About 对话框等处展示 */
+    public static String describeHostStats() {
+        Map<String, HostStats> snapshot = hostStats();
+        if (snapshot.isEmpty()) return "No provider requests yet";
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, HostStats> e : snapshot.entrySet()) {
+            HostStats s = e.getValue();
+            sb.append(e.getKey())
+                    .append(": requests=").append(s.requests())
+                    .append(", handshakes=").append(s.handshakes())
+                    .append(", reused=").append(s.reused())
+                    .append(", h2=").append(s.http2())
+                    .append(", gzip=").append(s.gzipped())
+                    .append(", body ").append(s.wireBytes() / 1024).append("KB on wire / ")
+                    .append(s.decodedBytes() / 1024).append("KB decoded")
+                    .append('\n');
+        }
+        return sb.toString().trim();
+    }
+
+    private static HostStats statsFor(String host) {
+        String key = host == null ? "" : host.toLowerCase(Locale.ROOT);
+        return STATS.computeIfAbsent(key, k -> new HostStats());
+    }
+
+    /**
+     * 返回包装了默认 SSLContext 的上下文：HttpClient 每新建一条 TLS 连接都会调用
+     * createSSLEngine(host, port)，借此按主机累计握手次数。创建失败时返回 null。
+     */
+    static SSLContext trackingSslContext() {
+        try {
+            return new TrackingSslContext(SSLContext.getDefault());
+        } catch (Exception e) {
+            System.err.println("[ProviderHttp] handshake tracking disabled: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static final class TrackingSslContext extends SSLContext {
+        TrackingSslContext(SSLContext delegate) {
+            super(new TrackingSpi(delegate), delegate.getProvider(), delegate.getProtocol());
+        }
+    }
+
+    private static final class TrackingSpi extends SSLContextSpi {
+        private final SSLContext delegate;
+
+        TrackingSpi(SSLContext delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        protected void engineInit(KeyManager[] km, TrustManager[] tm, SecureRandom sr) {
+            // 委托对象（默认上下文）已初始化
+        }
+
+        @Override
+        protected SSLSocketFactory engineGetSocketFactory() {
+            return delegate.getSocketFactory();
+        }
+
+        @Override
+        protected SSLServerSocketFactory engineGetServerSocketFactory() {
+            return delegate.getServerSocketFactory();
+        }
+
+        @Override
+        protected SSLEngine engineCreateSSLEngine() {
+            return delegate.createSSLEngine();
+        }
+
+        @Override
+        protected SSLEngine engineCreateSSLEngine(String host, int port) {
+            statsFor(host).handshakes.increment();
+            return delegate.createSSLEngine(host, port);
+        }
+
+        @Override
+        protected SSLSessionContext engineGetServerSessionContext() {
+            return delegate.getServerSessionContext();
+        }
+
+        @Override
+        protected SSLSessionContext engineGetClientSessionContext() {
+            return delegate.getClientSessionContext();
+        }
+
+        @Override
+        protected SSLParameters engineGetDefaultSSLParameters() {
+            return delegate.getDefaultSSLParameters();
+        }
+
+        @Override
+        protected SSLParameters engineGetSupportedSSLParameters() {
+            return delegate.getSupportedSSLParameters();
+        }
+    }
+}
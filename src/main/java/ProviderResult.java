@@ -0,0 +1,166 @@
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import java.net.http.HttpTimeoutException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * 一次情报源查询的结果（异步 API 的统一返回值）。
+ * 异步方法不会以异常结束：网络异常、非 2xx、参数校验失败都折叠进 error 字段，
+ * 与原同步方法返回的 "Error:" / "Exception:" 字符串保持同样语义。
+ */
+public final class ProviderResult {
+    public final String provider;   // QAX / VirusTotal / ThreatBook / IPQS
+    public final String endpoint;   // 接口名，例如 compromise / ip_addresses / dns
+    public final String query;      // 规范化后的查询参数
+    public final int statusCode;    // HTTP 状态码；未拿到响应时为 -1
+    public final String body;       // 响应体原文：仅在留存原文或非 2xx 时存在（可能为 null）
+    public final Object model;      // 从响应流直接解析出的 Analyzer 模型对象（可能为 null）
+    public final String error;      // 成功时为 null，否则为与旧接口一致的错误串
+    public final Throwable cause;   // 网络/运行时异常（可能为 null）
+    public final long elapsedMs;    // 本次请求耗时（含重试与退避，不含限流排队）
+    public final long latencyMs;    // 最后一次尝试的收发耗时（熔断器按它判断上游是否变慢）
+    public final long fetchedAt;    // 拿到结果的时间（epoch 毫秒）；缓存命中时保留原始时间
+    public final boolean cached;    // 是否来自 VerdictCache（内存或磁盘）
+    public final int attempts;      // 实际发出的请求次数（含重试）；未发请求时为 0
+
+    private ProviderResult(String provider, String endpoint, String query, int statusCode,
+                           String body, Object model, String error, Throwable cause, long elapsedMs) {
+        this(provider, endpoint, query, statusCode, body, model, error, cause, elapsedMs, elapsedMs,
+                System.currentTimeMillis(), false, 1);
+    }
+
+    private ProviderResult(String provider, String endpoint, String query, int statusCode,
+                           String body, Object model, String error, Throwable cause, long elapsedMs,
+                           long latencyMs, long fetchedAt, boolean cached, int attempts) {
+        this.provider = provider;
+        this.endpoint = endpoint;
+        this.query = query;
+        this.statusCode = statusCode;
+        this.body = body;
+        this.model = model;
+        this.error = error;
+        this.cause = cause;
+        this.elapsedMs = elapsedMs;
+        this.latencyMs = latencyMs;
+        this.fetchedAt = fetchedAt;
+        this.cached = cached;
+        this.attempts = attempts;
+    }
+
+    /** 拿到了 HTTP 响应：2xx 视为成功，其余包装为 "Error: HTTP xxx body" */
+    static ProviderResult response(String provider, String endpoint, String query,
+                                   int statusCode, String body, Object model, long elapsedMs) {
+        String err = isSuccess(statusCode)
+                ? null
+                : "Error: HTTP " + statusCode + " " + (body == null ? "" : body);
+        return new ProviderResult(provider, endpoint, query, statusCode, body, model, err, null, elapsedMs);
+    }
+
+    /** 2xx 但响应体无法解析为预期结构 */
+    static ProviderResult unparseable(String provider, String endpoint, String query,
+                                      int statusCode, String body, Throwable t, long elapsedMs) {
+        String msg = (t instanceof JsonProcessingException)
+                ? ((JsonProcessingException) t).getOriginalMessage()
+                : t.getMessage();
+        String err = "Error: invalid response (" + msg + ")";
+        return new ProviderResult(provider, endpoint, query, statusCode, body, null, err, t, elapsedMs);
+    }
+
+    /** 请求未完成（超时、连接失败等） */
+    static ProviderResult failure(String provider, String endpoint, String query,
+                                  Throwable t, long elapsedMs) {
+        Throwable c = unwrap(t);
+        String err = (c instanceof HttpTimeoutException)
+                ? "Error: request timeout"
+                : "Exception: " + describe(c);
+        return new ProviderResult(provider, endpoint, query, -1, null, null, err, c, elapsedMs);
+    }
+
+    /** 本地校验失败，未发出请求（例如 API Key 为空） */
+    static ProviderResult rejected(String provider, String endpoint, String query, String error) {
+        return new ProviderResult(provider, endpoint, query, -1, null, null, error, null, 0, 0,
+                System.currentTimeMillis(), false, 0);
+    }
+
+    /** 所属检索已取消（新检索或 Clear）：请求被中止或未发出 */
+    static ProviderResult cancelled(String provider, String endpoint, String query) {
+        return new ProviderResult(provider, endpoint, query, -1, null, null, "Error: cancelled", null, 0, 0,
+                System.currentTimeMillis(), false, 0);
+    }
+
+    /** 从磁盘缓存（VerdictStore）还原的成功结果，保留原始 fetchedAt */
+    static ProviderResult restored(String provider, String endpoint, String query,
+                                   int statusCode, String body, Object model, long fetchedAt) {
+        return new ProviderResult(provider, endpoint, query, statusCode, body, model, null, null, 0, 0,
+                fetchedAt, true, 0);
+    }
+
+    /**
+     * 批量请求中拆出的单个指标的结果：沿用整批的状态码、耗时、尝试次数与时间；
+     * error 非空时（整批失败或批量响应里没有这一项）覆盖为失败。
+     */
+    static ProviderResult part(ProviderResult batch, String query, Object model, String error) {
+        String err = batch.error != null ? batch.error : error;
+        return new ProviderResult(batch.provider, batch.endpoint, query, batch.statusCode, null,
+                err == null ? model : null, err, batch.cause, batch.elapsedMs, batch.latencyMs,
+                batch.fetchedAt, batch.cached, batch.attempts);
+    }
+
+    public boolean isOk() {
+        return error == null;
+    }
+
+    /** 标记为缓存命中的副本（保留原始 fetchedAt，用于展示缓存年龄） */
+    ProviderResult fromCache() {
+        return new ProviderResult(provider, endpoint, query, statusCode, body, model, error, cause, elapsedMs, latencyMs,
+                fetchedAt, true, attempts);
+    }
+
+    /** 重试结束后的最终结果：记录总尝试次数与总耗时（含退避等待）；latencyMs 仍为这一次尝试的收发耗时 */
+    ProviderResult withAttempts(int attempts, long totalElapsedMs) {
+        return new ProviderResult(provider, endpoint, query, statusCode, body, model, error, cause, totalElapsedMs,
+                latencyMs, fetchedAt, cached, attempts);
+    }
+
+    /** 距离拿到结果已过去的毫秒数 */
+    public long ageMillis() {
+        return Math.max(0, System.currentTimeMillis() - fetchedAt);
+    }
+
+    /** 解析出的模型；类型不符或无模型时返回 null */
+    public <T> T model(Class<T> type) {
+        return type.isInstance(model) ? type.cast(model) : null;
+    }
+
+    /** 与旧同步接口相同的字符串：2xx 返回响应原文（需留存原文），否则返回错误串 */
+    public String toLegacyString() {
+        if (isSuccess(statusCode) && body != null) return body;
+        return error;
+    }
+
+    private static boolean isSuccess(int code) {
+        return code >= 200 && code < 300;
+    }
+
+    /** 异常信息；getMessage() 为空时（如 ConnectException）退回异常类名 */
+    static String describe(Throwable t) {
+        if (t == null) return "unknown";
+        String msg = t.getMessage();
+        return (msg == null || msg.isEmpty()) ? t.getClass().getSimpleName() : msg;
+    }
+
+    static Throwable unwrap(Throwable t) {
+        while ((t instanceof CompletionException || t instanceof ExecutionException) && t.getCause() != null) {
+            t = t.getCause();
+        }
+        return t;
+    }
+
+    @Override
+    public String toString() {
+        return provider + "/" + endpoint + "(" + query + ") "
+                + (isOk() ? "HTTP " + statusCode : error) + " in " + elapsedMs + "ms"
+                + (attempts > 1 ? " after " + attempts + " attempts" : "");
+    }
+}
@@ -1,23 +1,41 @@
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.OutputStream;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.net.URI;
+import java.net.http.HttpRequest;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.net.URLEncoder;
 
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
 public class QianxinTIP {
 
     // ===== 常量与状态 =====
     private static String API_KEY = "";
-    private static final int CONNECT_TIMEOUT_MS = 10_000;
-    private static final int READ_TIMEOUT_MS    = 20_000;
-    private static final String INI_PATH        = "conf.ini";
-    private static final String KEY_NAME        = "QAX_KEY";
-    private static final String API_URL         = "https://ti.qianxin.com/api/v2/compromise";
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(20); // 连接超时由共享 HttpClient 统一设置
+    private static final String PROVIDER          = "QAX";
+    private static final String INI_PATH          = "conf.ini";
+    private static final String KEY_NAME          = "QAX_KEY";
+    private static final String API_URL           = "https://ti.qianxin.com/api/v2/compromise";
+    private static final String IP_REPUTATION_URL = "https://webapi.ti.qianxin.com/ip/v3/reputation";
+    private static final String CHECK_URLS_URL    = "https://a.ti.qianxin.com/url/v1/CheckUrls";
+
+    // 批量接口每次请求的指标数上限（conf.ini: QAX_CHECKURLS_BATCH / QAX_COMPROMISE_BATCH）
+    // compromise 的 param 是否接受逗号分隔的多个指标没有文档保证，默认 1（逐个请求），需在 conf.ini 中显式开启
+    private static int CHECK_URLS_BATCH  = 50;
+    private static int COMPROMISE_BATCH  = 1;
 
     static {
         // 读取 API Key
@@ -31,46 +49,36 @@ public class QianxinTIP {
 
     /** Compromise detection query (POST) —— 保持原方法名与行为 */
     public static String SendVirusDetection(String param) {
-        HttpURLConnection connection = null;
-        try {
-            if (API_KEY == null || API_KEY.isEmpty()) {
-                return "Error: QAX_KEY is empty";
-            }
-
-            // 规范化输入
-            final String researchString = normalizeParam(param);
-
-            // 打开连接（走代理 & 统一超时兜底）
-            connection = HttpProxyConfig.open(new URL(API_URL));
-            connection.setConnectTimeout(Math.max(connection.getConnectTimeout(), CONNECT_TIMEOUT_MS));
-            connection.setReadTimeout(Math.max(connection.getReadTimeout(), READ_TIMEOUT_MS));
-
-            // POST 基本设置
-            connection.setRequestMethod("POST");
-            connection.setRequestProperty("Content-Type", "application/json");
-            connection.setDoOutput(true);
+        return SendVirusDetectionAsync(param, true).join().toLegacyString();
+    }
 
-            // 构造请求体并发送
-            final byte[] payload = buildJsonPayload(API_KEY, researchString);
-            connection.setFixedLengthStreamingMode(payload.length);
-            try (OutputStream os = connection.getOutputStream()) {
-                os.write(payload);
-            }
+    /** Compromise detection query 的异步版本（响应流直接解析为 ProviderResult.model） */
+    public static CompletableFuture<ProviderResult> SendVirusDetectionAsync(String param) {
+        return SendVirusDetectionAsync(param, false);
+    }
 
-            // 读取响应
-            final int code = connection.getResponseCode();
-            final String body = readBody(connection, code);
+    /** captureRaw=true 时同时保留响应原文（ProviderResult.body），供 JSON 视图使用 */
+    public static CompletableFuture<ProviderResult> SendVirusDetectionAsync(String param, boolean captureRaw) {
+        // 规范化输入
+        final String researchString = normalizeParam(param);
+        if (API_KEY == null || API_KEY.isEmpty()) {
+            return CompletableFuture.completedFuture(
+                    ProviderResult.rejected(PROVIDER, "compromise", researchString, "Error: QAX_KEY is empty"));
+        }
 
-            if (code < 200 || code >= 300) {
-                return "Error: HTTP " + code + " " + body;
-            }
-            return body;
+        // 构造请求体（走共享连接池 & 代理）
+        final byte[] payload = buildJsonPayload(API_KEY, researchString);
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(API_URL))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(payload))
+                .build();
 
-        } catch (Exception e) {
-            return "Exception: " + e.getMessage();
-        } finally {
-            if (connection != null) connection.disconnect();
-        }
+        // 单条查询始终直接请求：compromise 的批量结果无法保证与单条一致，不参与微批
+        return VerdictCache.lookup(PROVIDER, "compromise", researchString, captureRaw, () ->
+                ProviderHttp.call(PROVIDER, API_KEY, "compromise", researchString, request,
+                        Analyzer::QAX_ParseJson, captureRaw));
     }
 
     /** IP 信誉查询（GET）
@@ -78,41 +86,36 @@ public class QianxinTIP {
      *   -H 'Api-Key: xxxxxxx'
      */
     public static String AnalysisIP(String ip) {
-        HttpURLConnection connection = null;
-        try {
-            if (API_KEY == null || API_KEY.isEmpty()) {
-                return "Error: QAX_KEY is empty";
-            }
-
-            // 规范化并 URL 编码查询参数
-            final String resource = normalizeParam(ip);
-            final String encodedParam = URLEncoder.encode(resource, StandardCharsets.UTF_8.name());
-            final String urlStr = "https://webapi.ti.qianxin.com/ip/v3/reputation?param=" + encodedParam;
-
-            // 打开连接（走代理）并做超时兜底
-            connection = HttpProxyConfig.open(new URL(urlStr));
-            connection.setConnectTimeout(Math.max(connection.getConnectTimeout(), CONNECT_TIMEOUT_MS));
-            connection.setReadTimeout(Math.max(connection.getReadTimeout(), READ_TIMEOUT_MS));
+        return AnalysisIPAsync(ip, true).join().toLegacyString();
+    }
 
-            // GET + 头
-            connection.setRequestMethod("GET");
-            connection.setRequestProperty("Accept", "application/json");
-            connection.setRequestProperty("Api-Key", API_KEY);
+    /** IP 信誉查询的异步版本（响应流直接解析为 ProviderResult.model） */
+    public static CompletableFuture<ProviderResult> AnalysisIPAsync(String ip) {
+        return AnalysisIPAsync(ip, false);
+    }
 
-            // 读取响应
-            final int code = connection.getResponseCode();
-            final String body = readBody(connection, code);
+    /** captureRaw=true 时同时保留响应原文（ProviderResult.body），供 JSON 视图使用 */
+    public static CompletableFuture<ProviderResult> AnalysisIPAsync(String ip, boolean captureRaw) {
+        // 规范化并 URL 编码查询参数
+        final String resource = normalizeParam(ip);
+        if (API_KEY == null || API_KEY.isEmpty()) {
+            return CompletableFuture.completedFuture(
+                    ProviderResult.rejected(PROVIDER, "ip_reputation", resource, "Error: QAX_KEY is empty"));
+        }
+        final String urlStr = IP_REPUTATION_URL + "?param=" + URLEncoder.encode(resource, StandardCharsets.UTF_8);
 
-            if (code < 200 || code >= 300) {
-                return "Error: HTTP " + code + " " + body;
-            }
-            return body;
+        // GET + 头
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(urlStr))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Accept", "application/json")
+                .header("Api-Key", API_KEY)
+                .GET()
+                .build();
 
-        } catch (Exception e) {
-            return "Exception: " + e.getMessage();
-        } finally {
-            if (connection != null) connection.disconnect();
-        }
+        return VerdictCache.lookup(PROVIDER, "ip_reputation", resource, captureRaw, () ->
+                ProviderHttp.call(PROVIDER, API_KEY, "ip_reputation", resource, request,
+                        Analyzer::QAX_AnalysisIP_ParseJson, captureRaw));
     }
 
     /** URL/Domain 信誉检查（POST）
@@ -124,52 +127,264 @@ public class QianxinTIP {
      *    {"queries":[{"index":0,"origin_url":"xxxxx"}]}
      */
     public static String AnalysisDomain(String domain) {
-        HttpURLConnection connection = null;
-        try {
-            if (API_KEY == null || API_KEY.isEmpty()) {
-                return "Error: QAX_KEY is empty";
-            }
+        return AnalysisDomainAsync(domain, true).join().toLegacyString();
+    }
+
+    /** URL/Domain 信誉检查的异步版本（响应流直接解析为 ProviderResult.model） */
+    public static CompletableFuture<ProviderResult> AnalysisDomainAsync(String domain) {
+        return AnalysisDomainAsync(domain, false);
+    }
+
+    /** captureRaw=true 时同时保留响应原文（ProviderResult.body），供 JSON 视图使用 */
+    public static CompletableFuture<ProviderResult> AnalysisDomainAsync(String domain, boolean captureRaw) {
+        final String origin = normalizeParam(domain);
+        if (API_KEY == null || API_KEY.isEmpty()) {
+            return CompletableFuture.completedFuture(
+                    ProviderResult.rejected(PROVIDER, "check_urls", origin, "Error: QAX_KEY is empty"));
+        }
+        String jsonInputString =
+                "{\"queries\":[{\"index\":0,\"origin_url\":\"" + origin + "\"}]}";
+
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(CHECK_URLS_URL))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json")
+                .header("Api-Key", API_KEY)
+                .POST(HttpRequest.BodyPublishers.ofString(jsonInputString, StandardCharsets.UTF_8))
+                .build();
+
+        Supplier<CompletableFuture<ProviderResult>> single = () ->
+                ProviderHttp.call(PROVIDER, API_KEY, "check_urls", origin, request,
+                        Analyzer::QAX_AnalysisDomain_ParseJson, captureRaw);
+        return VerdictCache.lookup(PROVIDER, "check_urls", origin, captureRaw, captureRaw ? single : () ->
+                MicroBatcher.submit(PROVIDER, "check_urls", origin, CHECK_URLS_BATCH,
+                        QianxinTIP::checkUrlsChunk, single));
+    }
+
+    // =======================
+    //        批量查询
+    // =======================
+
+    /**
+     * CheckUrls 批量版本：每 QAX_CHECKURLS_BATCH 个 URL/域名合并为一次 POST
+     * （{"queries":[{"index":0,...},{"index":1,...}]}），再按 replies[].index 拆回各自的结果。
+     * 返回 规范化指标 → 结果（按输入顺序、去重）；每条结果的 model 是只含一个 reply 的
+     * QAXDomainCheckResponse，与 AnalysisDomainAsync 的结果形状一致。已缓存的指标不再请求，
+     * 拆出的成功结果写入 VerdictCache。批量结果不保留原文（body 为 null）。
+     */
+    public static CompletableFuture<Map<String, ProviderResult>> AnalysisDomainBatchAsync(List<String> domains) {
+        return cachedBatch("check_urls", domains, CHECK_URLS_BATCH, QianxinTIP::checkUrlsChunk);
+    }
+
+    /**
+     * compromise 批量版本：每 QAX_COMPROMISE_BATCH 个指标以逗号拼接为一次请求的 param，
+     * 再按告警的 ioc 字段把 data 拆回各个指标（每条结果的 model 是只含该指标告警的 QAXResponseData）。
+     * 只要有一条告警的 ioc 与输入对不上，这一块就改为逐个指标重新请求，不丢弃任何告警。
+     * QAX_COMPROMISE_BATCH 默认为 1，即逐个请求。缓存与原文的处理同 AnalysisDomainBatchAsync。
+     */
+    public static CompletableFuture<Map<String, ProviderResult>> SendVirusDetectionBatchAsync(List<String> params) {
+        return cachedBatch("compromise", params, COMPROMISE_BATCH, QianxinTIP::compromiseChunk);
+    }
+
+    /** 先取缓存，其余按 size 分块请求，成功结果写回缓存 */
+    private static CompletableFuture<Map<String, ProviderResult>> cachedBatch(
+            String endpoint, List<String> src, int size,
+            Function<List<String>, CompletableFuture<Map<String, ProviderResult>>> sendChunk) {
+        List<String> indicators = normalizeAll(src);
+        Map<String, ProviderResult> out = new LinkedHashMap<>();
+        List<String> todo = takeCached(endpoint, indicators, out);
+        if (todo.isEmpty()) return CompletableFuture.completedFuture(ordered(indicators, out));
+
+        List<CompletableFuture<Void>> calls = new ArrayList<>();
+        for (List<String> chunk : chunks(todo, size)) {
+            calls.add(sendChunk.apply(chunk).thenAccept(results -> {
+                for (Map.Entry<String, ProviderResult> e : results.entrySet()) {
+                    VerdictCache.store(PROVIDER, endpoint, e.getKey(), e.getValue());
+                }
+                synchronized (out) {
+                    out.putAll(results);
+                }
+            }));
+        }
+        return CompletableFuture.allOf(calls.toArray(new CompletableFuture<?>[0])).thenApply(v -> ordered(indicators, out));
+    }
+
+    /**
+     * 一次 CheckUrls 批量请求（不查缓存；chunk 为已规范化的指标，不超过接口上限）。
+     * 批量响应按 index 一一对应；缺少某个 index 的回复时，这些指标改为单条请求，结果与单条查询一致。
+     */
+    static CompletableFuture<Map<String, ProviderResult>> checkUrlsChunk(List<String> chunk) {
+        final String endpoint = "check_urls";
+        if (API_KEY == null || API_KEY.isEmpty()) return CompletableFuture.completedFuture(rejectAll(endpoint, chunk));
 
-            java.net.URL url = new java.net.URL("https://a.ti.qianxin.com/url/v1/CheckUrls");
-            connection = HttpProxyConfig.open(url); // 使用代理（全局已设默认超时，这里再兜底）
-            connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
-            connection.setReadTimeout(READ_TIMEOUT_MS);
-
-            connection.setRequestMethod("POST");
-            connection.setRequestProperty("Content-Type", "application/json");
-            connection.setRequestProperty("Accept", "application/json");
-            connection.setRequestProperty("Api-Key", API_KEY);
-            connection.setDoOutput(true);
-
-            String origin = (domain == null ? "" : domain).replaceAll("[\\s]+", "");
-            String jsonInputString =
-                    "{\"queries\":[{\"index\":0,\"origin_url\":\"" + origin + "\"}]}";
-
-            byte[] payload = jsonInputString.getBytes(java.nio.charset.StandardCharsets.UTF_8);
-            connection.setFixedLengthStreamingMode(payload.length);
-            try (java.io.OutputStream os = connection.getOutputStream()) {
-                os.write(payload);
+        ObjectNode body = Analyzer.MAPPER.createObjectNode();
+        ArrayNode queries = body.putArray("queries");
+        for (int i = 0; i < chunk.size(); i++) {
+            queries.addObject().put("index", i).put("origin_url", chunk.get(i));
+        }
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(CHECK_URLS_URL))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json")
+                .header("Api-Key", API_KEY)
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString(), StandardCharsets.UTF_8))
+                .build();
+
+        return ProviderHttp.call(PROVIDER, API_KEY, endpoint, batchLabel(chunk), request,
+                Analyzer::QAX_AnalysisDomain_ParseJson, false).thenApply(batch -> {
+            Analyzer.QAXDomainCheckResponse resp = batch.model(Analyzer.QAXDomainCheckResponse.class);
+            Map<Integer, Analyzer.QAXDomainCheckResponse.Reply> byIndex = new LinkedHashMap<>();
+            if (resp != null && resp.replies != null) {
+                for (Analyzer.QAXDomainCheckResponse.Reply r : resp.replies) {
+                    if (r != null) byIndex.put(r.index, r);
+                }
+            }
+            Map<String, ProviderResult> out = new LinkedHashMap<>();
+            for (int i = 0; i < chunk.size(); i++) {
+                Analyzer.QAXDomainCheckResponse.Reply reply = byIndex.get(i);
+                if (reply == null && batch.isOk() && chunk.size() > 1) {
+                    out.put(chunk.get(i), null);   // 稍后单条补查
+                    continue;
+                }
+                Analyzer.QAXDomainCheckResponse single = new Analyzer.QAXDomainCheckResponse();
+                single.replies = new ArrayList<>();
+                if (reply != null) {
+                    reply.index = 0;
+                    single.replies.add(reply);
+                }
+                out.put(chunk.get(i), ProviderResult.part(batch, chunk.get(i), single,
+                        reply == null ? "Error: no reply for index " + i : null));
             }
+            return out;
+        }).thenCompose(out -> {
+            List<CompletableFuture<Map<String, ProviderResult>>> retries = new ArrayList<>();
+            for (Map.Entry<String, ProviderResult> e : out.entrySet()) {
+                if (e.getValue() == null) retries.add(checkUrlsChunk(Collections.singletonList(e.getKey())));
+            }
+            if (retries.isEmpty()) return CompletableFuture.completedFuture(out);
+            return CompletableFuture.allOf(retries.toArray(new CompletableFuture<?>[0])).thenApply(v -> {
+                for (CompletableFuture<Map<String, ProviderResult>> r : retries) out.putAll(r.join());
+                return out;
+            });
+        });
+    }
+
+    /**
+     * 一次 compromise 批量请求（不查缓存；chunk 为已规范化的指标，不超过接口上限）。
+     * 无法归属的告警（ioc 为空或与任何输入都不相同）出现时，整块退回逐个指标的单条请求。
+     */
+    static CompletableFuture<Map<String, ProviderResult>> compromiseChunk(List<String> chunk) {
+        final String endpoint = "compromise";
+        if (API_KEY == null || API_KEY.isEmpty()) return CompletableFuture.completedFuture(rejectAll(endpoint, chunk));
+
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(API_URL))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(buildJsonPayload(API_KEY, String.join(",", chunk))))
+                .build();
 
-            int responseCode = connection.getResponseCode();
-            try (java.io.BufferedReader in = new java.io.BufferedReader(
-                    new java.io.InputStreamReader(
-                            (responseCode >= 200 && responseCode < 300)
-                                    ? connection.getInputStream()
-                                    : connection.getErrorStream(),
-                            java.nio.charset.StandardCharsets.UTF_8))) {
-                StringBuilder response = new StringBuilder();
-                String line; while ((line = in.readLine()) != null) response.append(line);
-                if (responseCode < 200 || responseCode >= 300) {
-                    return "Error: HTTP " + responseCode + " " + response;
+        return ProviderHttp.call(PROVIDER, API_KEY, endpoint, batchLabel(chunk), request,
+                Analyzer::QAX_ParseJson, false).thenApply(batch -> {
+            Analyzer.QAXResponseData resp = batch.model(Analyzer.QAXResponseData.class);
+            Map<String, Analyzer.QAXResponseData> byIoc = new LinkedHashMap<>();
+            for (String p : chunk) {
+                Analyzer.QAXResponseData single = new Analyzer.QAXResponseData();
+                single.status = resp == null ? 0 : resp.status;
+                single.msg = resp == null ? null : resp.msg;
+                single.data = new ArrayList<>();
+                byIoc.put(VerdictCache.normalize(p), single);
+            }
+            if (resp != null && resp.data != null) {
+                for (Analyzer.AlertData a : resp.data) {
+                    if (chunk.size() == 1) {
+                        byIoc.values().iterator().next().data.add(a);
+                        continue;
+                    }
+                    Set<Analyzer.QAXResponseData> owners = new LinkedHashSet<>();
+                    if (a != null && a.ioc != null) {
+                        for (String ioc : a.ioc) {
+                            Analyzer.QAXResponseData owner = byIoc.get(VerdictCache.normalize(ioc));
+                            if (owner != null) owners.add(owner);
+                        }
+                    }
+                    if (owners.isEmpty()) return null;   // 无法归属：退回逐个请求
+                    for (Analyzer.QAXResponseData owner : owners) owner.data.add(a);
                 }
-                return response.toString();
             }
-        } catch (Exception e) {
-            return "Exception: " + e.getMessage();
-        } finally {
-            if (connection != null) connection.disconnect();
+            Map<String, ProviderResult> out = new LinkedHashMap<>();
+            for (String p : chunk) {
+                out.put(p, ProviderResult.part(batch, p, byIoc.get(VerdictCache.normalize(p)), null));
+            }
+            return out;
+        }).thenCompose(out -> out != null ? CompletableFuture.completedFuture(out) : compromiseOneByOne(chunk));
+    }
+
+    /** 逐个指标发出 compromise 请求，结果与单条查询完全一致 */
+    private static CompletableFuture<Map<String, ProviderResult>> compromiseOneByOne(List<String> chunk) {
+        List<CompletableFuture<Map<String, ProviderResult>>> calls = new ArrayList<>();
+        for (String p : chunk) calls.add(compromiseChunk(Collections.singletonList(p)));
+        return CompletableFuture.allOf(calls.toArray(new CompletableFuture<?>[0])).thenApply(v -> {
+            Map<String, ProviderResult> out = new LinkedHashMap<>();
+            for (CompletableFuture<Map<String, ProviderResult>> c : calls) out.putAll(c.join());
+            return out;
+        });
+    }
+
+    private static Map<String, ProviderResult> rejectAll(String endpoint, List<String> chunk) {
+        Map<String, ProviderResult> out = new LinkedHashMap<>();
+        for (String s : chunk) out.put(s, ProviderResult.rejected(PROVIDER, endpoint, s, "Error: QAX_KEY is empty"));
+        return out;
+    }
+
+    /** 规范化 + 去重（保持输入顺序），空串忽略 */
+    private static List<String> normalizeAll(List<String> src) {
+        Set<String> seen = new LinkedHashSet<>();
+        if (src != null) {
+            for (String s : src) {
+                String n = normalizeParam(s);
+                if (!n.isEmpty()) seen.add(n);
+            }
+        }
+        return new ArrayList<>(seen);
+    }
+
+    /** 先取缓存：命中的直接放进 out，返回仍需请求的指标；Key 为空时全部拒绝 */
+    private static List<String> takeCached(String endpoint, List<String> indicators, Map<String, ProviderResult> out) {
+        List<String> todo = new ArrayList<>();
+        for (String s : indicators) {
+            if (API_KEY == null || API_KEY.isEmpty()) {
+                out.put(s, ProviderResult.rejected(PROVIDER, endpoint, s, "Error: QAX_KEY is empty"));
+                continue;
+            }
+            ProviderResult hit = VerdictCache.peek(PROVIDER, endpoint, s);
+            if (hit != null) out.put(s, hit);
+            else todo.add(s);
+        }
+        return todo;
+    }
+
+    private static List<List<String>> chunks(List<String> items, int size) {
+        List<List<String>> out = new ArrayList<>();
+        for (int i = 0; i < items.size(); i += size) {
+            out.add(new ArrayList<>(items.subList(i, Math.min(items.size(), i + size))));
+        }
+        return out;
+    }
+
+    private static Map<String, ProviderResult> ordered(List<String> keys, Map<String, ProviderResult> results) {
+        Map<String, ProviderResult> out = new LinkedHashMap<>();
+        synchronized (results) {
+            for (String k : keys) out.put(k, results.get(k));
         }
+        return out;
+    }
+
+    /** 批量请求在日志/统计中的查询描述，例如 "a.com (+49)" */
+    private static String batchLabel(List<String> chunk) {
+        return chunk.size() == 1 ? chunk.get(0) : chunk.get(0) + " (+" + (chunk.size() - 1) + ")";
     }
 
     /** 运行时刷新（保持原方法名与语义） */
@@ -186,16 +401,27 @@ public class QianxinTIP {
         try (FileInputStream fis = new FileInputStream(iniPath)) {
             props.load(fis);
             API_KEY = props.getProperty(KEY_NAME, "");
+            CHECK_URLS_BATCH = parseBatchSize(props.getProperty("QAX_CHECKURLS_BATCH"), CHECK_URLS_BATCH);
+            COMPROMISE_BATCH = parseBatchSize(props.getProperty("QAX_COMPROMISE_BATCH"), COMPROMISE_BATCH);
             if (API_KEY == null || API_KEY.isEmpty()) {
                 System.err.println("Warning: " + KEY_NAME + " not found in conf.ini, QianxinTIP will be unable to call the API.");
             } else {
-                System.out.println("QianxinTIP API Key loaded successfully");
+                System.err.println("QianxinTIP API Key loaded successfully");
             }
         } catch (IOException e) {
             System.err.println("Failed to read conf.ini (QianxinTIP): " + e.getMessage());
         }
     }
 
+    private static int parseBatchSize(String s, int def) {
+        if (s == null || s.trim().isEmpty()) return def;
+        try {
+            return Math.max(1, Integer.parseInt(s.trim()));
+        } catch (Exception e) {
+            return def;
+        }
+    }
+
     /** 去掉所有空白字符，保持你原本的输入清洗逻辑 */
     private static String normalizeParam(String src) {
         return (src == null ? "" : src).replaceAll("[\\s]+", "");
@@ -211,18 +437,4 @@ public class QianxinTIP {
                         "\"ignore_port\":true}";
         return json.getBytes(StandardCharsets.UTF_8);
     }
-
-    /** 根据响应码选择输入流并读取为 UTF-8 字符串 */
-    private static String readBody(HttpURLConnection conn, int responseCode) throws IOException {
-        try (BufferedReader in = new BufferedReader(new InputStreamReader(
-                (responseCode >= 200 && responseCode < 300)
-                        ? conn.getInputStream()
-                        : conn.getErrorStream(),
-                StandardCharsets.UTF_8))) {
-            StringBuilder sb = new StringBuilder(2048);
-            String line;
-            while ((line = in.readLine()) != null) sb.append(line);
-            return sb.toString();
-        }
-    }
 }
@@ -0,0 +1,307 @@
+import java.io.FileInputStream;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * 按情报源 + API Key 的令牌桶限流。超出速率的请求不会失败，而是排队到有令牌时再发出
+ * （按预约时间调度，不占用线程）；当日配额用完或预计等待超过上限时直接拒绝。
+ * 收到 HTTP 429 时清空令牌，后续请求自动让出一个补充周期。
+ *
+ * conf.ini（0 表示不限制）:
+ *   RATE_QAX_PER_MIN / RATE_VT_PER_MIN / RATE_TB_PER_MIN / RATE_IPQS_PER_MIN   每分钟请求数（可为小数）
+ *   RATE_QAX_BURST   / RATE_VT_BURST   / RATE_TB_BURST   / RATE_IPQS_BURST     桶容量（默认 1 分钟的量）
+ *   QUOTA_QAX_PER_DAY / QUOTA_VT_PER_DAY / QUOTA_TB_PER_DAY / QUOTA_IPQS_PER_DAY 每日配额（进程内计数）
+ *   RATE_MAX_WAIT_SEC  单个请求最长排队时间（默认 600）
+ */
+public final class RateLimiter {
+
+    private static final String INI_PATH = "conf.ini";
+
+    // provider 名称 → conf.ini 中的键前缀，以及默认的 每分钟请求数 / 每日配额
+    private static final String[][] LIMIT_KEYS = {
+            {"QAX",        "QAX",  "0",  "0"},
+            {"VirusTotal", "VT",   "4",  "500"},     // VT 公共 Key：4 次/分钟，500 次/天
+            {"ThreatBook", "TB",   "60", "0"},
+            {"IPQS",       "IPQS", "60", "0"},
+    };
+
+    private static final Map<String, Limit> LIMITS = new HashMap<>();
+    private static final Map<String, Bucket> BUCKETS = new ConcurrentHashMap<>();
+    private static volatile long maxWaitNanos = TimeUnit.SECONDS.toNanos(600);
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "rate-limiter");
+        t.setDaemon(true);
+        return t;
+    });
+
+    static {
+        loadFromIni(INI_PATH);
+    }
+
+    private RateLimiter() {}
+
+    /** 单个情报源的限额配置 */
+    private static final class Limit {
+        final double permitsPerNano;   // 0 = 不限速
+        final double burst;
+        final int perDay;              // 0 = 不限量
+
+        Limit(double perMinute, double burst, int perDay) {
+            this.permitsPerNano = perMinute / TimeUnit.MINUTES.toNanos(1);
+            this.burst = Math.max(1, burst);
+            this.perDay = perDay;
+        }
+    }
+
+    /**
+     * 令牌桶（预约式）：tokens 可以为负，负值表示已被排队请求预约的令牌；
+     * 新请求的等待时间 = 欠缺的令牌 / 补充速率。
+     */
+    private static final class Bucket {
+        final String provider;
+        final Limit limit;
+        double tokens;
+        long lastRefill = System.nanoTime();
+        int queued;                   // 正在等待发出的请求数
+        LocalDate day = LocalDate.now();
+        int usedToday;
+
+        Bucket(String provider, Limit limit) {
+            this.provider = provider;
+            this.limit = limit;
+            this.tokens = limit.burst;
+        }
+
+        private void refill(long now) {
+            if (limit.permitsPerNano > 0) {
+                tokens = Math.min(limit.burst, tokens + (now - lastRefill) * limit.permitsPerNano);
+            }
+            lastRefill = now;
+        }
+
+        /** 预约一个令牌，返回需要等待的纳秒数；-1 表示超出当日配额，-2 表示等待过长 */
+        synchronized long reserve() {
+            LocalDate today = LocalDate.now();
+            if (!today.equals(day)) {
+                day = today;
+                usedToday = 0;
+            }
+            if (limit.perDay > 0 && usedToday >= limit.perDay) return -1;
+            if (limit.permitsPerNano <= 0) {
+                usedToday++;
+                return 0;
+            }
+
+            long now = System.nanoTime();
+            refill(now);
+            long wait = tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / limit.permitsPerNano);
+            if (wait > maxWaitNanos) return -2;
+            tokens -= 1;
+            usedToday++;
+            if (wait > 0) queued++;
+            return wait;
+        }
+
+        /** 不排队：现在有令牌（且未超当日配额）就取走一个并返回 true */
+        synchronized boolean tryReserveNow() {
+            LocalDate today = LocalDate.now();
+            if (!today.equals(day)) {
+                day = today;
+                usedToday = 0;
+            }
+            if (limit.perDay > 0 && usedToday >= limit.perDay) return false;
+            if (limit.permitsPerNano > 0) {
+                refill(System.nanoTime());
+                if (tokens < 1) return false;
+                tokens -= 1;
+            }
+            usedToday++;
+            return true;
+        }
+
+        synchronized void dequeued() {
+            queued = Math.max(0, queued - 1);
+        }
+
+        /** 排队中的请求在发出前被取消：退还它预约的令牌与当日配额 */
+        synchronized void refund() {
+            refill(System.nanoTime());
+            tokens = Math.min(limit.burst, tokens + 1);
+            if (day.equals(LocalDate.now())) usedToday = Math.max(0, usedToday - 1);
+            queued = Math.max(0, queued - 1);
+        }
+
+        /** 服务端返回 429：丢弃剩余令牌 */
+        synchronized void throttled() {
+            refill(System.nanoTime());
+            tokens = Math.min(tokens, 0);
+        }
+
+        /** 现在再来一个请求需要等待的毫秒数 */
+        synchronized long expectedWaitMillis() {
+            if (limit.permitsPerNano <= 0) return 0;
+            refill(System.nanoTime());
+            if (tokens >= 1) return 0;
+            return TimeUnit.NANOSECONDS.toMillis((long) Math.ceil((1 - tokens) / limit.permitsPerNano));
+        }
+
+        synchronized int queued() {
+            return queued;
+        }
+    }
+
+    /* ==============================
+     * 1) 请求入口
+     * ============================== */
+
+    /**
+     * 在限额内执行 call：有令牌时立即执行，否则按预约时间延后执行。
+     * 超出当日配额或预计等待超过 RATE_MAX_WAIT_SEC 时返回 rejected 结果，不发请求。
+     * token 在排队期间被取消时立即返回 cancelled，并退还预约的令牌，后续请求不再为它等待。
+     */
+    public static CompletableFuture<ProviderResult> submit(String provider, String apiKey,
+                                                           String endpoint, String query, CancellationToken token,
+                                                           Supplier<CompletableFuture<ProviderResult>> call) {
+        Limit limit = LIMITS.get(provider);
+        if (limit == null || (limit.permitsPerNano <= 0 && limit.perDay <= 0)) return call.get();
+        if (token.isCancelled()) {
+            return CompletableFuture.completedFuture(ProviderResult.cancelled(provider, endpoint, query));
+        }
+
+        Bucket bucket = bucketFor(provider, apiKey, limit);
+        long wait = bucket.reserve();
+        if (wait == -1) {
+            return CompletableFuture.completedFuture(ProviderResult.rejected(provider, endpoint, query,
+                    "Error: " + provider + " daily quota exhausted (" + limit.perDay + "/day)"));
+        }
+        if (wait == -2) {
+            return CompletableFuture.completedFuture(ProviderResult.rejected(provider, endpoint, query,
+                    "Error: " + provider + " rate limit queue is full (wait > "
+                            + TimeUnit.NANOSECONDS.toSeconds(maxWaitNanos) + "s)"));
+        }
+        if (wait == 0) return track(bucket, call.get());
+
+        CompletableFuture<ProviderResult> delayed = new CompletableFuture<>();
+        AtomicBoolean settled = new AtomicBoolean();   // 到点发出与取消退款只发生其一
+        ScheduledFuture<?> timer = SCHEDULER.schedule(() -> {
+            if (!settled.compareAndSet(false, true)) return;
+            bucket.dequeued();
+            try {
+                track(bucket, call.get()).whenComplete((r, ex) -> {
+                    if (ex != null) delayed.completeExceptionally(ex);
+                    else delayed.complete(r);
+                });
+            } catch (RuntimeException e) {
+                delayed.completeExceptionally(e);
+            }
+        }, wait, TimeUnit.NANOSECONDS);
+        Runnable unregister = token.onCancel(() -> {
+            if (!settled.compareAndSet(false, true)) return;
+            timer.cancel(false);
+            bucket.refund();
+            delayed.complete(ProviderResult.cancelled(provider, endpoint, query));
+        });
+        delayed.whenComplete((r, ex) -> unregister.run());
+        return delayed;
+    }
+
+    /** 非阻塞地尝试取一个令牌（对冲请求用）：取不到时返回 false，不排队 */
+    public static boolean tryAcquire(String provider, String apiKey) {
+        Limit limit = LIMITS.get(provider);
+        if (limit == null || (limit.permitsPerNano <= 0 && limit.perDay <= 0)) return true;
+        return bucketFor(provider, apiKey, limit).tryReserveNow();
+    }
+
+    /** 429 时通知令牌桶 */
+    private static CompletableFuture<ProviderResult> track(Bucket bucket, CompletableFuture<ProviderResult> f) {
+        return f.whenComplete((r, ex) -> {
+            if (r != null && r.statusCode == 429) bucket.throttled();
+        });
+    }
+
+    private static Bucket bucketFor(String provider, String apiKey, Limit limit) {
+        // Key 不直接作为 map 的键，避免在内存快照里明文出现
+        String id = provider + "#" + Integer.toHexString(apiKey == null ? 0 : apiKey.hashCode());
+        return BUCKETS.computeIfAbsent(id, k -> new Bucket(provider, limit));
+    }
+
+    /* ==============================
+     * 2) 队列状态（供界面展示）
+     * ============================== */
+
+    /** 某个情报源当前排队中的请求数（所有 Key 合计） */
+    public static int queueDepth(String provider) {
+        int n = 0;
+        for (Bucket b : BUCKETS.values()) {
+            if (b.provider.equals(provider)) n += b.queued();
+        }
+        return n;
+    }
+
+    /** 某个情报源下一个请求的预计等待（毫秒，取各 Key 中最大值） */
+    public static long expectedWaitMillis(String provider) {
+        long w = 0;
+        for (Bucket b : BUCKETS.values()) {
+            if (b.provider.equals(provider)) w = Math.max(w, b.expectedWaitMillis());
+        }
+        return w;
+    }
+
+    /** 有排队请求的情报源摘要，例如 "VirusTotal 3 queued (~45s)"；没有排队时返回空串 */
+    public static String describeQueues() {
+        Map<String, String> parts = new TreeMap<>();
+        for (Bucket b : BUCKETS.values()) {
+            if (parts.containsKey(b.provider)) continue;
+            int depth = queueDepth(b.provider);
+            if (depth <= 0) continue;
+            long sec = (expectedWaitMillis(b.provider) + 999) / 1000;
+            parts.put(b.provider, b.provider + " " + depth + " queued (~" + sec + "s)");
+        }
+        return String.join(", ", parts.values());
+    }
+
+    /* ==============================
+     * 3) 配置
+     * ============================== */
+
+    private static void loadFromIni(String path) {
+        Properties p = new Properties();
+        try (FileInputStream in = new FileInputStream(path)) {
+            p.load(in);
+        } catch (Exception ignore) {
+            // 没有 conf.ini 时使用默认值
+        }
+        for (String[] row : LIMIT_KEYS) {
+            double perMin = Math.max(0, parseDouble(p.getProperty("RATE_" + row[1] + "_PER_MIN"),
+                    Double.parseDouble(row[2])));
+            double burst = parseDouble(p.getProperty("RATE_" + row[1] + "_BURST"), Math.max(1, perMin));
+            int perDay = (int) Math.max(0, parseDouble(p.getProperty("QUOTA_" + row[1] + "_PER_DAY"),
+                    Double.parseDouble(row[3])));
+            LIMITS.put(row[0], new Limit(perMin, burst, perDay));
+        }
+        long sec = (long) Math.max(1, parseDouble(p.getProperty("RATE_MAX_WAIT_SEC"), 600));
+        maxWaitNanos = TimeUnit.SECONDS.toNanos(sec);
+    }
+
+    private static double parseDouble(String s, double def) {
+        if (s == null || s.trim().isEmpty()) return def;
+        try {
+            return Double.parseDouble(s.trim().toLowerCase(Locale.ROOT));
+        } catch (Exception e) {
+            return def;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.net.http.HttpHeaders;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 各情报源共用的重试策略（由 ProviderHttp.exchange 调用）。
+ * 可重试：连接失败/重置、HttpTimeoutException、HTTP 429/502/503/504；
+ * 退避：base * 2^(n-1)，取 [0, 该值] 间的随机数（full jitter），不超过 RETRY_MAX_DELAY_MS；
+ * 响应带 Retry-After 时按服务端要求等待。
+ * 单次调用的总耗时（含等待）不超过 RETRY_BUDGET_MS，超出预算则直接返回最后一次结果。
+ *
+ * conf.ini:
+ *   RETRY_MAX_ATTEMPTS   最多请求次数（含首次，默认 3；1 表示不重试）
+ *   RETRY_BASE_MS        首次退避基数（默认 500）
+ *   RETRY_MAX_DELAY_MS   单次退避上限（默认 8000）
+ *   RETRY_BUDGET_MS      单次调用总耗时预算（默认 30000）
+ */
+public final class RetryPolicy {
+
+    private static final String INI_PATH = "conf.ini";
+
+    private static volatile int maxAttempts = 3;
+    private static volatile long baseMs = 500;
+    private static volatile long maxDelayMs = 8000;
+    private static volatile long budgetMs = 30000;
+
+    private static final Map<String, Stats> STATS = new ConcurrentHashMap<>();
+
+    static {
+        loadFromIni(INI_PATH);
+    }
+
+    private RetryPolicy() {}
+
+    /* ==============================
+     * 1) 决策
+     * ============================== */
+
+    /**
+     * 第 attempt 次请求得到 r 之后，是否以及多久后重试。
+     * 返回等待毫秒数；返回 -1 表示不再重试（不可重试、次数用完或超出预算）。
+     *
+     * @param retryAfterMs 响应中的 Retry-After（毫秒），没有时为 -1
+     * @param elapsedMs    本次调用到目前为止的总耗时（收发与退避，不含限流排队）
+     */
+    static long nextDelayMillis(ProviderResult r, int attempt, long retryAfterMs, long elapsedMs) {
+        if (r == null || r.isOk() || attempt >= maxAttempts || !isRetryable(r)) return -1;
+
+        long delay;
+        if (retryAfterMs >= 0) {
+            delay = retryAfterMs;
+        } else {
+            long cap = Math.min(maxDelayMs, baseMs << Math.min(20, attempt - 1));
+            delay = ThreadLocalRandom.current().nextLong(cap + 1);
+        }
+        // 等待后至少还要留出一次请求的时间；Retry-After 太久时放弃
+        if (elapsedMs + delay >= budgetMs) return -1;
+        return delay;
+    }
+
+    /** 瞬时错误：限流、网关错误、超时、连接被拒绝/重置 */
+    static boolean isRetryable(ProviderResult r) {
+        int code = r.statusCode;
+        if (code == 429 || code == 502 || code == 503 || code == 504) return true;
+        if (code >= 0) return false; // 其它 HTTP 响应（含 2xx 解析失败）不重试
+        // HttpTimeoutException / ConnectException / 连接重置都是 IOException
+        return r.cause instanceof IOException;
+    }
+
+    /** 解析 Retry-After：秒数或 HTTP 日期；没有或无法解析时返回 -1 */
+    static long retryAfterMillis(HttpHeaders headers) {
+        if (headers == null) return -1;
+        Optional<String> v = headers.firstValue("Retry-After");
+        if (!v.isPresent()) return -1;
+        String s = v.get().trim();
+        try {
+            return Math.max(0, Long.parseLong(s) * 1000L);
+        } catch (NumberFormatException ignore) {
+            // 不是秒数，按 HTTP 日期解析
+        }
+        try {
+            ZonedDateTime at = ZonedDateTime.parse(s, DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0, at.toInstant().toEpochMilli() - System.currentTimeMillis());
+        } catch (Exception ignore) {
+            return -1;
+        }
+    }
+
+    /* ==============================
+     * 2) 统计
+     * ============================== */
+
+    /** 单个情报源的重试计数 */
+    public static final class Stats {
+        private final LongAdder retries = new LongAdder();     // 发出的重试请求数
+        private final LongAdder recovered = new LongAdder();   // 经重试后成功的调用
+        private final LongAdder exhausted = new LongAdder();   // 重试后仍失败的调用
+        private final LongAdder waitedMs = new LongAdder();    // 退避等待总时长
+
+        public long retries()   { return retries.sum(); }
+        public long recovered() { return recovered.sum(); }
+        public long exhausted() { return exhausted.sum(); }
+        public long waitedMs()  { return waitedMs.sum(); }
+    }
+
+    static void recordRetry(String provider, long delayMs) {
+        Stats s = statsFor(provider);
+        s.retries.increment();
+        s.waitedMs.add(delayMs);
+    }
+
+    /** 调用结束：记录经过重试的调用最终是否成功 */
+    static void recordOutcome(ProviderResult r) {
+        if (r == null || r.attempts <= 1) return;
+        Stats s = statsFor(r.provider);
+        if (r.isOk()) s.recovered.increment();
+        else s.exhausted.increment();
+    }
+
+    public static Map<String, Stats> stats() {
+        return new TreeMap<>(STATS);
+    }
+
+    /** 多行文本形式的统计，供 About 对话框等处展示 */
+    public static String describeStats() {
+        Map<String, Stats> snapshot = stats();
+        if (snapshot.isEmpty()) return "No retries";
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Stats> e : snapshot.entrySet()) {
+            Stats s = e.getValue();
+            sb.append(e.getKey())
+                    .append(": retries=").append(s.retries())
+                    .append(", recovered=").append(s.recovered())
+                    .append(", failed=").append(s.exhausted())
+                    .append(", backoff=").append(s.waitedMs()).append("ms")
+                    .append('\n');
+        }
+        return sb.toString().trim();
+    }
+
+    private static Stats statsFor(String provider) {
+        return STATS.computeIfAbsent(provider == null ? "" : provider, k -> new Stats());
+    }
+
+    /* ==============================
+     * 3) 配置
+     * ============================== */
+
+    private static void loadFromIni(String path) {
+        Properties p = new Properties();
+        try (FileInputStream in = new FileInputStream(path)) {
+            p.load(in);
+        } catch (Exception ignore) {
+            // 没有 conf.ini 时使用默认值
+        }
+        maxAttempts = (int) Math.max(1, parseLong(p.getProperty("RETRY_MAX_ATTEMPTS"), 3));
+        baseMs = Math.max(1, parseLong(p.getProperty("RETRY_BASE_MS"), 500));
+        maxDelayMs = Math.max(baseMs, parseLong(p.getProperty("RETRY_MAX_DELAY_MS"), 8000));
+        budgetMs = Math.max(0, parseLong(p.getProperty("RETRY_BUDGET_MS"), 30000));
+    }
+
+    private static long parseLong(String s, long def) {
+        if (s == null || s.trim().isEmpty()) return def;
+        try {
+            return Long.parseLong(s.trim());
+        } catch (Exception e) {
+            return def;
+        }
+    }
+}
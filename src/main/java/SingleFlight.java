@@ -0,0 +1,122 @@
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 相同查询的合并（single-flight）：同一 情报源/接口/规范化指标 已有请求在途时，
+ * 后来者不再发请求，而是等待并共享这一次的结果（批量任务、主检索、Deep Analysis 同时查同一个指标时只消耗一次配额）。
+ *
+ * 取消：在途请求绑定自己的 CancellationToken，不跟随任何一个调用方；
+ * 某个调用方取消只让它自己立即拿到 "Error: cancelled"，所有等待者都取消后才中止上游请求。
+ * 需要原文（captureRaw）的调用只合并到同样保留原文的请求上。
+ */
+public final class SingleFlight {
+
+    private static final Map<String, Flight> FLIGHTS = new ConcurrentHashMap<>();
+    private static final LongAdder LEADERS = new LongAdder();
+    private static final LongAdder SHARED = new LongAdder();
+
+    private SingleFlight() {}
+
+    /** 一次在途请求及其等待者 */
+    private static final class Flight {
+        final CompletableFuture<ProviderResult> result = new CompletableFuture<>();
+        final CancellationToken token = new CancellationToken();
+        int waiters = 1;
+
+        /** 加入等待；请求已结束（正在从表中移除）时返回 false */
+        synchronized boolean join() {
+            if (result.isDone() || token.isCancelled()) return false;
+            waiters++;
+            return true;
+        }
+
+        synchronized void leave() {
+            if (--waiters <= 0) token.cancel();
+        }
+    }
+
+    /* ==============================
+     * 1) 请求入口
+     * ============================== */
+
+    /**
+     * 相同 情报源/接口/指标 的请求在途时共享其结果，否则调用 loader 发起新请求。
+     * 调用线程上绑定的 CancellationToken 只影响本次调用的等待。
+     */
+    public static CompletableFuture<ProviderResult> run(String provider, String endpoint, String indicator,
+                                                        boolean needRaw,
+                                                        Supplier<CompletableFuture<ProviderResult>> loader) {
+        final CancellationToken caller = CancellationToken.current();
+        final String key = VerdictCache.key(provider, endpoint, indicator);
+
+        Flight f = joinExisting(key + "|raw");
+        if (f == null && !needRaw) f = joinExisting(key);
+        if (f != null) {
+            SHARED.increment();
+            return follow(f, caller, provider, endpoint, indicator);
+        }
+
+        final String flightKey = needRaw ? key + "|raw" : key;
+        Flight mine = new Flight();
+        Flight other = FLIGHTS.putIfAbsent(flightKey, mine);
+        if (other != null && other.join()) {
+            // 与另一个线程同时发起：让先放进表里的那个发请求
+            SHARED.increment();
+            return follow(other, caller, provider, endpoint, indicator);
+        }
+        if (other != null) FLIGHTS.put(flightKey, mine);
+
+        LEADERS.increment();
+        mine.result.whenComplete((r, ex) -> FLIGHTS.remove(flightKey, mine));
+        CompletableFuture<ProviderResult> upstream;
+        try {
+            upstream = mine.token.callWith(loader::get);
+        } catch (Exception e) {
+            upstream = CompletableFuture.failedFuture(e);
+        }
+        upstream.whenComplete((r, ex) -> {
+            if (ex != null) mine.result.completeExceptionally(ex);
+            else mine.result.complete(r);
+        });
+        return follow(mine, caller, provider, endpoint, indicator);
+    }
+
+    private static Flight joinExisting(String flightKey) {
+        Flight f = FLIGHTS.get(flightKey);
+        return f != null && f.join() ? f : null;
+    }
+
+    /** 调用方视角的结果：调用方取消时立即返回，并退出等待 */
+    private static CompletableFuture<ProviderResult> follow(Flight f, CancellationToken caller,
+                                                            String provider, String endpoint, String indicator) {
+        if (caller == CancellationToken.NONE) return f.result;
+
+        CompletableFuture<ProviderResult> out = new CompletableFuture<>();
+        Runnable unregister = caller.onCancel(() -> {
+            if (out.complete(ProviderResult.cancelled(provider, endpoint, indicator))) f.leave();
+        });
+        f.result.whenComplete((r, ex) -> {
+            unregister.run();
+            if (ex != null) out.completeExceptionally(ex);
+            else out.complete(r);
+        });
+        return out;
+    }
+
+    /* ==============================
+     * 2) 统计
+     * ============================== */
+
+    /** 当前在途（可被合并）的请求数 */
+    public static int inFlight() {
+        return FLIGHTS.size();
+    }
+
+    /** 单行摘要，例如 "42 upstream calls, 17 coalesced, 1 in flight" */
+    public static String describeStats() {
+        return LEADERS.sum() + " upstream calls, " + SHARED.sum() + " coalesced, " + inFlight() + " in flight";
+    }
+}
@@ -1,17 +1,17 @@
-import java.io.BufferedReader;
 import java.io.FileInputStream;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
+import java.net.URI;
 import java.net.URLEncoder;
-import java.net.URL;
+import java.net.http.HttpRequest;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
 
 public class ThreatBook {
     // ===== 常量 & 状态 =====
     private static String API_KEY = "";
-    private static final int CONNECT_TIMEOUT_MS = 10_000;
-    private static final int READ_TIMEOUT_MS    = 20_000;
+    private static final String PROVIDER = "ThreatBook";
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(20); // 连接超时由共享 HttpClient 统一设置
 
     // ===== 静态初始化：读取 conf.ini，并初始化代理（与原逻辑一致）=====
     static {
@@ -24,78 +24,32 @@ public class ThreatBook {
 
     /** DNS 场景查询（GET）——保持原方法签名与行为 */
     public static String QueryDNS(String domain) {
-        HttpURLConnection connection = null;
-        try {
-            if (API_KEY == null || API_KEY.isEmpty()) {
-                return "Error: ThreatBook API key is empty";
-            }
-
-            final String base = "https://api.threatbook.cn/v3/scene/dns";
-            final String resource = normalizeResource(domain);
-            final String params = buildQueryParams(API_KEY, resource);
-            final URL url = new URL(base + "?" + params);
-
-            // 使用代理打开连接（保留原调用）
-            connection = HttpProxyConfig.open(url);
-
-            // 统一设置更长的超时（不低于默认）
-            connection.setConnectTimeout(Math.max(connection.getConnectTimeout(), CONNECT_TIMEOUT_MS));
-            connection.setReadTimeout(Math.max(connection.getReadTimeout(), READ_TIMEOUT_MS));
-
-            connection.setRequestMethod("GET");
-            connection.setRequestProperty("Accept", "application/json");
+        return QueryDNSAsync(domain, true).join().toLegacyString();
+    }
 
-            final int responseCode = connection.getResponseCode();
-            final String body = readBody(connection, responseCode);
+    /** DNS 场景查询的异步版本（响应流直接解析为 ProviderResult.model） */
+    public static CompletableFuture<ProviderResult> QueryDNSAsync(String domain) {
+        return QueryDNSAsync(domain, false);
+    }
 
-            // 与原逻辑一致：非 2xx 直接包装错误串返回
-            if (responseCode < 200 || responseCode >= 300) {
-                return "Error: HTTP " + responseCode + " " + body;
-            }
-            return body;
-        } catch (Exception e) {
-            return "Exception: " + e.getMessage();
-        } finally {
-            if (connection != null) connection.disconnect(); // 保持及时释放连接
-        }
+    /** captureRaw=true 时同时保留响应原文（ProviderResult.body），供 JSON 视图使用 */
+    public static CompletableFuture<ProviderResult> QueryDNSAsync(String domain, boolean captureRaw) {
+        return query("dns", "https://api.threatbook.cn/v3/scene/dns", domain, captureRaw);
     }
 
     /** IP 画像查询（GET */
     public static String AnalysisIP(String IP) {
-        HttpURLConnection connection = null;
-        try {
-            if (API_KEY == null || API_KEY.isEmpty()) {
-                return "Error: ThreatBook API key is empty";
-            }
-
-            final String base = "https://api.threatbook.cn/v3/ip/query";
-            final String resource = normalizeResource(IP);
-            final String params = buildQueryParams(API_KEY, resource);
-            final URL url = new URL(base + "?" + params);
-
-            // 使用代理打开连接（保持与 QueryDNS 一致）
-            connection = HttpProxyConfig.open(url);
-
-            // 统一设置超时（不低于默认）
-            connection.setConnectTimeout(Math.max(connection.getConnectTimeout(), CONNECT_TIMEOUT_MS));
-            connection.setReadTimeout(Math.max(connection.getReadTimeout(), READ_TIMEOUT_MS));
-
-            connection.setRequestMethod("GET");
-            connection.setRequestProperty("Accept", "application/json");
+        return AnalysisIPAsync(IP, true).join().toLegacyString();
+    }
 
-            final int responseCode = connection.getResponseCode();
-            final String body = readBody(connection, responseCode);
+    /** IP 画像查询的异步版本（响应流直接解析为 ProviderResult.model） */
+    public static CompletableFuture<ProviderResult> AnalysisIPAsync(String IP) {
+        return AnalysisIPAsync(IP, false);
+    }
 
-            // 非 2xx 返回错误串
-            if (responseCode < 200 || responseCode >= 300) {
-                return "Error: HTTP " + responseCode + " " + body;
-            }
-            return body;
-        } catch (Exception e) {
-            return "Exception: " + e.getMessage();
-        } finally {
-            if (connection != null) connection.disconnect();
-        }
+    /** captureRaw=true 时同时保留响应原文（ProviderResult.body），供 JSON 视图使用 */
+    public static CompletableFuture<ProviderResult> AnalysisIPAsync(String IP, boolean captureRaw) {
+        return query("ip_query", "https://api.threatbook.cn/v3/ip/query", IP, captureRaw);
     }
 
     /** 运行时刷新 API Key（与原逻辑一致） */
@@ -116,39 +70,43 @@ public class ThreatBook {
             if (API_KEY == null || API_KEY.isEmpty()) {
                 System.err.println("Warning: TB_KEY not found in conf.ini, ThreatBook will be unable to call the API.");
             } else {
-                System.out.println("ThreatBook API Key loaded successfully");
+                System.err.println("ThreatBook API Key loaded successfully");
             }
         } catch (Exception e) {
             System.err.println("Failed to read conf.ini (ThreatBook): " + e.getMessage());
         }
     }
 
+    /** 两个接口共用的 GET 请求：apikey + resource，走共享 HttpClient（代理 + 长连接复用） */
+    private static CompletableFuture<ProviderResult> query(String endpoint, String base, String raw,
+                                                          boolean captureRaw) {
+        final String resource = normalizeResource(raw);
+        if (API_KEY == null || API_KEY.isEmpty()) {
+            return CompletableFuture.completedFuture(
+                    ProviderResult.rejected(PROVIDER, endpoint, resource, "Error: ThreatBook API key is empty"));
+        }
+
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(base + "?" + buildQueryParams(API_KEY, resource)))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+
+        return VerdictCache.lookup(PROVIDER, endpoint, resource, captureRaw, () ->
+                ProviderHttp.call(PROVIDER, API_KEY, endpoint, resource, request,
+                        Analyzer::ThreatBook_ParseJson, captureRaw));
+    }
+
     /** 规范化 resource（去空白） */
     private static String normalizeResource(String domain) {
         return domain == null ? "" : domain.replaceAll("[\\s]+", "");
     }
 
     /** 构建查询参数并进行 URL 编码 */
-    private static String buildQueryParams(String apiKey, String resource) throws Exception {
-        String ak = URLEncoder.encode(apiKey, StandardCharsets.UTF_8.name());
-        String rs = URLEncoder.encode(resource, StandardCharsets.UTF_8.name());
+    private static String buildQueryParams(String apiKey, String resource) {
+        String ak = URLEncoder.encode(apiKey, StandardCharsets.UTF_8);
+        String rs = URLEncoder.encode(resource, StandardCharsets.UTF_8);
         return "apikey=" + ak + "&resource=" + rs;
     }
-
-    /** 按响应码选择输入流并读取为字符串（UTF-8） */
-    private static String readBody(HttpURLConnection connection, int responseCode) throws Exception {
-        try (BufferedReader in = new BufferedReader(new InputStreamReader(
-                (responseCode >= 200 && responseCode < 300)
-                        ? connection.getInputStream()
-                        : connection.getErrorStream(),
-                StandardCharsets.UTF_8))) {
-
-            StringBuilder resp = new StringBuilder(2048);
-            String line;
-            while ((line = in.readLine()) != null) {
-                resp.append(line);
-            }
-            return resp.toString();
-        }
-    }
 }
@@ -0,0 +1,207 @@
+import java.io.FileInputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * 情报源查询结果的内存缓存（LRU + TTL）。
+ * key = provider | endpoint | 规范化后的指标；每个情报源有独立的新鲜期，
+ * 只缓存成功结果，超过容量时淘汰最久未使用的条目。
+ * 内存未命中时再查磁盘层 VerdictStore（重启后仍可用），成功结果同时写盘；
+ * 都未命中时经 SingleFlight 合并相同的在途请求。
+ *
+ * conf.ini:
+ *   CACHE_MAX_ENTRIES   最大条目数（默认 2000）
+ *   CACHE_TTL_QAX_SEC / CACHE_TTL_VT_SEC / CACHE_TTL_TB_SEC / CACHE_TTL_IPQS_SEC
+ *                        各情报源新鲜期（秒，0 表示不缓存）
+ */
+public final class VerdictCache {
+
+    private static final String INI_PATH = "conf.ini";
+    private static final int DEFAULT_MAX_ENTRIES = 2000;
+
+    // provider 名称 → conf.ini 中的 TTL 键与默认值（秒）
+    private static final String[][] TTL_KEYS = {
+            {"QAX",        "CACHE_TTL_QAX_SEC",  "1800"},
+            {"VirusTotal", "CACHE_TTL_VT_SEC",   "3600"},
+            {"ThreatBook", "CACHE_TTL_TB_SEC",   "1800"},
+            {"IPQS",       "CACHE_TTL_IPQS_SEC", "900"},
+    };
+
+    private static final Map<String, Long> TTL_MILLIS = new HashMap<>();
+    private static volatile int maxEntries = DEFAULT_MAX_ENTRIES;
+
+    // accessOrder=true：get 会把条目移到队尾，队首即最久未使用
+    private static final LinkedHashMap<String, ProviderResult> ENTRIES =
+            new LinkedHashMap<String, ProviderResult>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, ProviderResult> eldest) {
+                    return size() > maxEntries;
+                }
+            };
+
+    static {
+        loadFromIni(INI_PATH);
+    }
+
+    private VerdictCache() {}
+
+    /* ==============================
+     * 1) 查询入口
+     * ============================== */
+
+    /**
+     * 命中且在新鲜期内时直接返回缓存（ProviderResult.cached = true），否则调用 loader 并缓存成功结果。
+     * needRaw=true 时，缓存里没有原文的条目视为未命中。
+     */
+    public static CompletableFuture<ProviderResult> lookup(String provider, String endpoint, String indicator,
+                                                           boolean needRaw,
+                                                           Supplier<CompletableFuture<ProviderResult>> loader) {
+        long ttl = ttlMillis(provider);
+        if (ttl <= 0) return SingleFlight.run(provider, endpoint, indicator, needRaw, loader);
+
+        final String key = key(provider, endpoint, indicator);
+        ProviderResult hit = get(key, ttl);
+        if (hit == null) {
+            hit = VerdictStore.load(key, ttl);
+            if (hit != null) put(key, hit);
+        }
+        if (hit != null && (!needRaw || hit.body != null)) {
+            return CompletableFuture.completedFuture(hit.fromCache());
+        }
+        // 相同查询在途时共享结果；只有真正发请求的那一次写缓存
+        return SingleFlight.run(provider, endpoint, indicator, needRaw, () -> loader.get().thenApply(r -> {
+            if (r != null && r.isOk()) {
+                put(key, r);
+                VerdictStore.save(key, r);
+            }
+            return r;
+        }));
+    }
+
+    /** 只查缓存（内存 → 磁盘）、不发请求，供批量接口先剔除已缓存的指标；未命中返回 null */
+    static ProviderResult peek(String provider, String endpoint, String indicator) {
+        long ttl = ttlMillis(provider);
+        if (ttl <= 0) return null;
+        String key = key(provider, endpoint, indicator);
+        ProviderResult hit = get(key, ttl);
+        if (hit == null) {
+            hit = VerdictStore.load(key, ttl);
+            if (hit != null) put(key, hit);
+        }
+        return hit == null ? null : hit.fromCache();
+    }
+
+    /** 写入批量接口拆分出的单条结果（只缓存成功结果），之后的单条查询可直接命中 */
+    static void store(String provider, String endpoint, String indicator, ProviderResult r) {
+        if (ttlMillis(provider) <= 0 || r == null || !r.isOk()) return;
+        String key = key(provider, endpoint, indicator);
+        put(key, r);
+        VerdictStore.save(key, r);
+    }
+
+    /** 丢弃某个指标在所有情报源/接口下的缓存（强制刷新） */
+    public static void invalidate(String indicator) {
+        String suffix = "|" + normalize(indicator);
+        synchronized (ENTRIES) {
+            ENTRIES.keySet().removeIf(k -> k.endsWith(suffix));
+        }
+        VerdictStore.removeBySuffix(suffix);
+    }
+
+    public static void clear() {
+        synchronized (ENTRIES) {
+            ENTRIES.clear();
+        }
+    }
+
+    public static int size() {
+        synchronized (ENTRIES) {
+            return ENTRIES.size();
+        }
+    }
+
+    /** 把缓存年龄格式化为 "42s" / "5m" / "2h" */
+    public static String formatAge(long millis) {
+        long sec = Math.max(0, millis / 1000);
+        if (sec < 60) return sec + "s";
+        if (sec < 3600) return (sec / 60) + "m";
+        return (sec / 3600) + "h";
+    }
+
+    /* ==============================
+     * 2) 内部实现
+     * ============================== */
+
+    private static ProviderResult get(String key, long ttl) {
+        synchronized (ENTRIES) {
+            ProviderResult r = ENTRIES.get(key);
+            if (r == null) return null;
+            if (r.ageMillis() > ttl) {
+                ENTRIES.remove(key);
+                return null;
+            }
+            return r;
+        }
+    }
+
+    private static void put(String key, ProviderResult r) {
+        synchronized (ENTRIES) {
+            ENTRIES.put(key, r);
+            purgeExpired();
+        }
+    }
+
+    /** 顺带清理过期条目（调用方已持有锁） */
+    private static void purgeExpired() {
+        Iterator<ProviderResult> it = ENTRIES.values().iterator();
+        while (it.hasNext()) {
+            ProviderResult r = it.next();
+            if (r.ageMillis() > ttlMillis(r.provider)) it.remove();
+        }
+    }
+
+    static String key(String provider, String endpoint, String indicator) {
+        return provider + "|" + endpoint + "|" + normalize(indicator);
+    }
+
+    /** 指标规范化：去空白与结尾的点；不含路径时大小写不敏感（IP / 域名） */
+    static String normalize(String indicator) {
+        String s = indicator == null ? "" : indicator.replaceAll("[\\s]+", "");
+        while (s.endsWith(".")) s = s.substring(0, s.length() - 1);
+        return s.contains("/") ? s : s.toLowerCase(Locale.ROOT);
+    }
+
+    static long ttlMillis(String provider) {
+        Long v = TTL_MILLIS.get(provider);
+        return v == null ? 0 : v;
+    }
+
+    private static void loadFromIni(String path) {
+        Properties p = new Properties();
+        try (FileInputStream in = new FileInputStream(path)) {
+            p.load(in);
+        } catch (Exception ignore) {
+            // 没有 conf.ini 时使用默认值
+        }
+        maxEntries = Math.max(1, parseInt(p.getProperty("CACHE_MAX_ENTRIES"), DEFAULT_MAX_ENTRIES));
+        for (String[] row : TTL_KEYS) {
+            long sec = parseInt(p.getProperty(row[1]), Integer.parseInt(row[2]));
+            TTL_MILLIS.put(row[0], Math.max(0, sec) * 1000L);
+        }
+    }
+
+    private static int parseInt(String s, int def) {
+        if (s == null || s.trim().isEmpty()) return def;
+        try {
+            return Integer.parseInt(s.trim());
+        } catch (Exception e) {
+            return def;
+        }
+    }
+}
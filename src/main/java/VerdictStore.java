@@ -0,0 +1,507 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * VerdictCache 的磁盘层：追加写的段文件（verdicts.dat），按缓存 key 建内存索引，
+ * 重启后在情报源新鲜期内的查询可直接从本地返回。
+ *
+ * 记录格式（大端）：
+ *   int    recordLen              // 之后的字节数
+ *   UTF    key                    // provider|endpoint|indicator
+ *   long   fetchedAt
+ *   int    statusCode
+ *   byte   kind                   // 1 = 响应原文, 0 = 由模型重新序列化的 JSON,
+ *                                 // 2 = 删除 key, 3 = 删除以 key 结尾的全部记录（删除标记，无正文）
+ *   UTF    modelClass             // Analyzer 模型类名，用于还原 ProviderResult.model；
+ *                                 // 只接受 MODEL_TYPES 中的类，其他类名视为损坏的记录
+ *   int    bodyLen + bytes        // UTF-8 JSON
+ *
+ * 同一 key 以最后一条为准；Refresh 等失效操作追加删除标记，重启后重建索引时同样生效。
+ * 中间某条记录损坏时跳过它（长度可信则按长度跳，否则向后找下一个合法的记录头），不影响之后的记录；
+ * 只有文件末尾不完整的半条记录会被截掉。
+ * 文件超过上限或失效记录过多时，在写盘线程把仍新鲜的记录复制到临时文件（复制期间不持锁，查询照常），
+ * 再在锁内原子替换。
+ *
+ * conf.ini:
+ *   DISK_CACHE_ENABLED   是否启用（默认 true）
+ *   DISK_CACHE_PATH      文件路径（默认 verdicts.dat）
+ *   DISK_CACHE_MAX_MB    文件上限（默认 64）
+ */
+public final class VerdictStore {
+
+    private static final String INI_PATH = "conf.ini";
+    private static final byte KIND_MODEL = 0;
+    private static final byte KIND_RAW = 1;
+    private static final byte KIND_DELETE = 2;
+    private static final byte KIND_DELETE_SUFFIX = 3;
+    private static final long MIN_FETCHED_AT = 946_684_800_000L;   // 2000-01-01，用于识别合法的记录头
+
+    // 可还原的模型类（类名 → 类）：类名来自数据文件，不能交给 Class.forName，否则改写文件即可让 Jackson 绑定任意类
+    private static final Map<String, Class<?>> MODEL_TYPES = modelTypes(
+            Analyzer.QAXResponseData.class,
+            Analyzer.QAXDomainCheckResponse.class,
+            Analyzer.QAXIpReputationResponse.class,
+            Analyzer.VirusTotalResponse.class,
+            Analyzer.ThreatBookResponse.class,
+            Analyzer.IPQSResponse.class);
+
+    private static final boolean ENABLED;
+    private static final Path PATH;
+    private static final long MAX_BYTES;
+
+    // key → 最新记录的位置
+    private static final Map<String, Slot> INDEX = new HashMap<>();
+    private static FileChannel channel;
+    private static long liveBytes;   // 索引中最新记录占用的字节数（用于判断是否需要压缩）
+    private static volatile boolean compacting;
+
+    // 写盘与压缩都放在单独线程，不阻塞网络 IO 线程；文件只在这个线程上追加或替换
+    private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "verdict-store");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static final class Slot {
+        final long offset;     // 记录起始位置（含长度前缀）
+        final int length;      // 记录总长度（含长度前缀）
+        final long fetchedAt;
+        final String provider;
+
+        Slot(long offset, int length, long fetchedAt, String provider) {
+            this.offset = offset;
+            this.length = length;
+            this.fetchedAt = fetchedAt;
+            this.provider = provider;
+        }
+    }
+
+    static {
+        Properties p = new Properties();
+        try (FileInputStream in = new FileInputStream(INI_PATH)) {
+            p.load(in);
+        } catch (Exception ignore) {
+            // 没有 conf.ini 时使用默认值
+        }
+        ENABLED = Boolean.parseBoolean(p.getProperty("DISK_CACHE_ENABLED", "true").trim());
+        PATH = Paths.get(p.getProperty("DISK_CACHE_PATH", "verdicts.dat").trim());
+        MAX_BYTES = Math.max(1, parseLong(p.getProperty("DISK_CACHE_MAX_MB"), 64)) * 1024L * 1024L;
+        if (ENABLED) open();
+    }
+
+    private VerdictStore() {}
+
+    private static Map<String, Class<?>> modelTypes(Class<?>... types) {
+        Map<String, Class<?>> m = new HashMap<>();
+        for (Class<?> t : types) m.put(t.getName(), t);
+        return m;
+    }
+
+    /* ==============================
+     * 1) 对外接口
+     * ============================== */
+
+    /** 读取 key 对应的记录；不存在或超过 ttl 时返回 null */
+    static ProviderResult load(String key, long ttlMillis) {
+        if (!ENABLED) return null;
+        Slot slot;
+        synchronized (VerdictStore.class) {
+            if (channel == null) return null;
+            slot = INDEX.get(key);
+            if (slot == null) return null;
+            if (System.currentTimeMillis() - slot.fetchedAt > ttlMillis) return null;
+            try {
+                ByteBuffer buf = ByteBuffer.allocate(slot.length);
+                if (!readFully(buf, slot.offset)) throw new EOFException("record truncated");
+                return decode(buf.array());
+            } catch (Exception e) {
+                System.err.println("[VerdictStore] read failed: " + e.getMessage());
+                return null;
+            }
+        }
+    }
+
+    /** 异步追加一条成功结果 */
+    static void save(String key, ProviderResult r) {
+        if (!ENABLED || r == null || !r.isOk() || (r.body == null && r.model == null)) return;
+        WRITER.execute(() -> {
+            try {
+                append(key, encode(key, r), r.fetchedAt, r.provider);
+                if (needsCompaction()) compact();
+            } catch (Exception e) {
+                System.err.println("[VerdictStore] write failed: " + e.getMessage());
+            }
+        });
+    }
+
+    /** 丢弃 key：立即从索引移除，并追加删除标记，重启后也不会再命中；旧记录在下次压缩时清除 */
+    static void remove(String key) {
+        if (!ENABLED) return;
+        unindex(key, KIND_DELETE);
+        writeMarker(key, KIND_DELETE);
+    }
+
+    /** 按后缀丢弃（与 VerdictCache.invalidate 对应） */
+    static void removeBySuffix(String suffix) {
+        if (!ENABLED) return;
+        unindex(suffix, KIND_DELETE_SUFFIX);
+        writeMarker(suffix, KIND_DELETE_SUFFIX);
+    }
+
+    /** 在写盘线程上追加删除标记；同时再清一次索引，覆盖排在它之前、尚未落盘的 save */
+    private static void writeMarker(String key, byte kind) {
+        WRITER.execute(() -> {
+            try {
+                synchronized (VerdictStore.class) {
+                    if (channel == null) return;
+                    appendBytes(encodeMarker(key, kind));
+                    unindex(key, kind);
+                }
+            } catch (Exception e) {
+                System.err.println("[VerdictStore] write failed: " + e.getMessage());
+            }
+        });
+    }
+
+    private static synchronized void unindex(String key, byte kind) {
+        if (kind == KIND_DELETE) {
+            Slot old = INDEX.remove(key);
+            if (old != null) liveBytes -= old.length;
+            return;
+        }
+        INDEX.entrySet().removeIf(e -> {
+            if (!e.getKey().endsWith(key)) return false;
+            liveBytes -= e.getValue().length;
+            return true;
+        });
+    }
+
+    /* ==============================
+     * 2) 编解码
+     * ============================== */
+
+    private static byte[] encode(String key, ProviderResult r) throws IOException {
+        byte kind = r.body != null ? KIND_RAW : KIND_MODEL;
+        byte[] json = r.body != null
+                ? r.body.getBytes(StandardCharsets.UTF_8)
+                : Analyzer.MAPPER.writeValueAsBytes(r.model);
+        String modelClass = r.model == null ? "" : r.model.getClass().getName();
+        if (!modelClass.isEmpty() && !MODEL_TYPES.containsKey(modelClass)) {
+            throw new IOException("unsupported model type " + modelClass);
+        }
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(json.length + 128);
+        DataOutputStream out = new DataOutputStream(bos);
+        out.writeInt(0); // 占位，稍后回填长度
+        out.writeUTF(key);
+        out.writeLong(r.fetchedAt);
+        out.writeInt(r.statusCode);
+        out.writeByte(kind);
+        out.writeUTF(modelClass);
+        out.writeInt(json.length);
+        out.write(json);
+        out.flush();
+
+        byte[] rec = bos.toByteArray();
+        ByteBuffer.wrap(rec).putInt(0, rec.length - 4);
+        return rec;
+    }
+
+    private static byte[] encodeMarker(String key, byte kind) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(64 + key.length());
+        DataOutputStream out = new DataOutputStream(bos);
+        out.writeInt(0);
+        out.writeUTF(key);
+        out.writeLong(System.currentTimeMillis());
+        out.writeInt(0);
+        out.writeByte(kind);
+        out.writeUTF("");
+        out.writeInt(0);
+        out.flush();
+
+        byte[] rec = bos.toByteArray();
+        ByteBuffer.wrap(rec).putInt(0, rec.length - 4);
+        return rec;
+    }
+
+    private static ProviderResult decode(byte[] rec) throws Exception {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(rec));
+        in.readInt();
+        String key = in.readUTF();
+        long fetchedAt = in.readLong();
+        int status = in.readInt();
+        byte kind = in.readByte();
+        String modelClass = in.readUTF();
+        byte[] json = new byte[in.readInt()];
+        in.readFully(json);
+
+        Object model = null;
+        if (!modelClass.isEmpty()) {
+            Class<?> type = MODEL_TYPES.get(modelClass);
+            if (type == null) throw new IOException("unknown model type " + modelClass);
+            model = Analyzer.MAPPER.readValue(json, type);
+        }
+        String body = kind == KIND_RAW ? new String(json, StandardCharsets.UTF_8) : null;
+
+        String[] parts = key.split("\\|", 3);
+        return ProviderResult.restored(parts[0], parts.length > 1 ? parts[1] : "",
+                parts.length > 2 ? parts[2] : "", status, body, model, fetchedAt);
+    }
+
+    /* ==============================
+     * 3) 文件与索引
+     * ============================== */
+
+    private static synchronized void open() {
+        try {
+            channel = FileChannel.open(PATH, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long good = rebuildIndex();
+            if (good < channel.size()) {
+                // 上次异常退出留下的半条记录：截掉
+                channel.truncate(good);
+            }
+            channel.position(good);
+        } catch (IOException e) {
+            System.err.println("[VerdictStore] disabled: " + e.getMessage());
+            channel = null;
+        }
+    }
+
+    /**
+     * 顺序扫描记录头重建索引并应用删除标记，返回最后一条完整记录之后的位置。
+     * 损坏的记录被跳过：长度前缀可信时按长度跳到下一条，否则逐字节向后找下一个合法的记录头。
+     */
+    private static long rebuildIndex() throws IOException {
+        INDEX.clear();
+        liveBytes = 0;
+        long size = channel.size();
+        long pos = 0;
+        long end = 0;
+        int skipped = 0;
+        while (pos + 4 <= size) {
+            Header h = readHeader(pos, size);
+            if (h != null) {
+                apply(h, pos);
+                pos += 4 + h.len;
+                end = pos;
+                continue;
+            }
+            int len = readInt(pos);
+            if (len <= 0 || pos + 4 + len > size) {
+                long next = resync(pos + 1, size);
+                if (next < 0) break;   // 之后没有完整记录：文件尾部的半条记录
+                pos = next;
+            } else {
+                pos += 4 + len;         // 长度可信、内容损坏：整条跳过
+                end = pos;
+            }
+            skipped++;
+        }
+        if (skipped > 0) System.err.println("[VerdictStore] skipped " + skipped + " corrupt record(s)");
+        return end;
+    }
+
+    /** 一条记录的头部 */
+    private static final class Header {
+        int len;
+        String key;
+        long fetchedAt;
+        byte kind;
+    }
+
+    /** 读取并校验 pos 处的记录头；不是合法记录时返回 null */
+    private static Header readHeader(long pos, long size) {
+        try {
+            int len = readInt(pos);
+            if (len <= 0 || pos + 4 + len > size) return null;
+            ByteBuffer lenBuf = ByteBuffer.allocate(2);
+            if (!readFully(lenBuf, pos + 4)) return null;
+            int keyLen = lenBuf.getShort(0) & 0xFFFF;
+            int header = 2 + keyLen + 8 + 4 + 1;
+            if (header + 2 > len) return null;
+            ByteBuffer buf = ByteBuffer.allocate(header + 2);
+            if (!readFully(buf, pos + 4)) return null;
+            int classLen = buf.getShort(header) & 0xFFFF;
+            if (header + 2 + classLen + 4 > len) return null;
+            ByteBuffer cls = ByteBuffer.allocate(2 + classLen);
+            if (!readFully(cls, pos + 4 + header)) return null;
+            String modelClass = new DataInputStream(new ByteArrayInputStream(cls.array())).readUTF();
+            if (!modelClass.isEmpty() && !MODEL_TYPES.containsKey(modelClass)) return null;
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(buf.array()));
+            Header h = new Header();
+            h.len = len;
+            h.key = in.readUTF();
+            h.fetchedAt = in.readLong();
+            in.readInt();
+            h.kind = in.readByte();
+            if (h.kind < KIND_MODEL || h.kind > KIND_DELETE_SUFFIX) return null;
+            if (h.fetchedAt < MIN_FETCHED_AT || h.fetchedAt > System.currentTimeMillis() + 86_400_000L) return null;
+            if (h.kind != KIND_DELETE_SUFFIX && h.key.indexOf('|') <= 0) return null;
+            return h;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /** 从 from 开始向后找下一个合法的记录头；找不到返回 -1 */
+    private static long resync(long from, long size) {
+        for (long p = from; p + 4 <= size; p++) {
+            if (readHeader(p, size) != null) return p;
+        }
+        return -1;
+    }
+
+    private static int readInt(long pos) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(4);
+        return readFully(buf, pos) ? buf.getInt(0) : -1;
+    }
+
+    /** 从 pos 起读满 buf（FileChannel.read 可能只读到一部分）；先到文件尾时返回 false */
+    private static boolean readFully(ByteBuffer buf, long pos) throws IOException {
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, pos + buf.position()) < 0) return false;
+        }
+        return true;
+    }
+
+    private static void apply(Header h, long pos) {
+        if (h.kind == KIND_DELETE || h.kind == KIND_DELETE_SUFFIX) {
+            unindex(h.key, h.kind);
+        } else {
+            index(h.key, new Slot(pos, 4 + h.len, h.fetchedAt,
+                    h.key.substring(0, Math.max(0, h.key.indexOf('|')))));
+        }
+    }
+
+    private static void index(String key, Slot slot) {
+        Slot old = INDEX.put(key, slot);
+        if (old != null) liveBytes -= old.length;
+        liveBytes += slot.length;
+    }
+
+    private static synchronized void append(String key, byte[] rec, long fetchedAt, String provider)
+            throws IOException {
+        if (channel == null) return;
+        long pos = appendBytes(rec);
+        index(key, new Slot(pos, rec.length, fetchedAt, provider));
+    }
+
+    /** 在文件末尾写入一条记录，返回它的起始位置（调用方持锁） */
+    private static long appendBytes(byte[] rec) throws IOException {
+        long pos = channel.size();
+        ByteBuffer buf = ByteBuffer.wrap(rec);
+        while (buf.hasRemaining()) channel.write(buf, pos + buf.position());
+        return pos;
+    }
+
+    private static synchronized boolean needsCompaction() throws IOException {
+        if (channel == null || compacting) return false;
+        long size = channel.size();
+        // 超过上限，或一半以上是被覆盖/失效的记录
+        return size > MAX_BYTES || (size > 1024 * 1024 && liveBytes * 2 < size);
+    }
+
+    /**
+     * 把仍在新鲜期内的最新记录重写到临时文件，超出上限时先丢弃最旧的，再原子替换。
+     * 只在写盘线程上调用，复制期间不会有新的追加；复制不持锁，load 照常读旧文件，
+     * 替换时只保留复制期间没有被 remove 的记录。
+     */
+    private static void compact() {
+        List<Map.Entry<String, Slot>> keep = new ArrayList<>();
+        FileChannel src;
+        synchronized (VerdictStore.class) {
+            if (channel == null || compacting) return;
+            compacting = true;
+            src = channel;
+            long now = System.currentTimeMillis();
+            for (Map.Entry<String, Slot> e : INDEX.entrySet()) {
+                Slot s = e.getValue();
+                if (now - s.fetchedAt <= VerdictCache.ttlMillis(s.provider)) keep.add(Map.entry(e.getKey(), s));
+            }
+        }
+        Path tmp = PATH.resolveSibling(PATH.getFileName() + ".compact");
+        try {
+            // 新的在前；累计到上限的 3/4 为止
+            keep.sort(Comparator.comparingLong((Map.Entry<String, Slot> e) -> e.getValue().fetchedAt).reversed());
+            long budget = MAX_BYTES * 3 / 4;
+
+            Map<String, Slot> copied = new HashMap<>();   // key → 新文件中的位置
+            long written = 0;
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                for (Map.Entry<String, Slot> e : keep) {
+                    Slot s = e.getValue();
+                    if (written + s.length > budget) break;
+                    ByteBuffer buf = ByteBuffer.allocate(s.length);
+                    while (buf.hasRemaining()) {
+                        if (src.read(buf, s.offset + buf.position()) < 0) throw new EOFException();
+                    }
+                    buf.flip();
+                    while (buf.hasRemaining()) out.write(buf);
+                    copied.put(e.getKey(), new Slot(written, s.length, s.fetchedAt, s.provider));
+                    written += s.length;
+                }
+                out.force(true);
+            }
+
+            synchronized (VerdictStore.class) {
+                Map<String, Slot> newIndex = new HashMap<>();
+                long live = 0;
+                for (Map.Entry<String, Slot> e : keep) {
+                    Slot moved = copied.get(e.getKey());
+                    // 复制期间被 remove（或已不是同一条记录）的不再保留
+                    if (moved == null || INDEX.get(e.getKey()) != e.getValue()) continue;
+                    newIndex.put(e.getKey(), moved);
+                    live += moved.length;
+                }
+                channel.close();
+                Files.move(tmp, PATH, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                channel = FileChannel.open(PATH, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                INDEX.clear();
+                INDEX.putAll(newIndex);
+                liveBytes = live;
+            }
+        } catch (IOException e) {
+            System.err.println("[VerdictStore] compaction failed: " + e.getMessage());
+            synchronized (VerdictStore.class) {
+                try {
+                    Files.deleteIfExists(tmp);
+                    if (channel == null || !channel.isOpen()) open();
+                } catch (IOException ignore) {}
+            }
+        } finally {
+            compacting = false;
+        }
+    }
+
+    private static long parseLong(String s, long def) {
+        if (s == null || s.trim().isEmpty()) return def;
+        try {
+            return Long.parseLong(s.trim());
+        } catch (Exception e) {
+            return def;
+        }
+    }
+}
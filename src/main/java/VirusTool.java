@@ -4,6 +4,12 @@ import java.awt.*;
 public class VirusTool {
     public static void main(String[] args) {
         HttpProxyConfig.enableProxyBasicAuthForJdk();
+
+        // 命令行批量模式：不启动界面，结果输出到 stdout
+        if (BatchRunner.isBatch(args)) {
+            System.exit(BatchRunner.run(args));
+        }
+
         SwingUtilities.invokeLater(() -> {
             // Global uncaught exception handler
             Thread.setDefaultUncaughtExceptionHandler((t, e) -> {
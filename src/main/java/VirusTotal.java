@@ -1,15 +1,14 @@
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.net.http.HttpTimeoutException;
 import java.time.Duration;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
 
 public class VirusTotal {
     private static String VirusTotal_KEY;
+    private static final String PROVIDER = "VirusTotal";
     private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(20);
 
     static {
@@ -20,7 +19,7 @@ public class VirusTotal {
             if (VirusTotal_KEY == null || VirusTotal_KEY.isEmpty()) {
                 System.err.println("Warning: VT_KEY not found in conf.ini, VirusTotal will be unable to call the API.");
             }else{
-                System.out.println("VirusTotal API Key loaded successfully");
+                System.err.println("VirusTotal API Key loaded successfully");
             }
         } catch (IOException e) {
             throw new RuntimeException("Failed to read conf.ini: " + e.getMessage(), e);
@@ -31,48 +30,54 @@ public class VirusTotal {
     }
 
     public static String getDomainReport(String domain) {
-        try {
-            HttpClient client = HttpProxyConfig.newHttpClient(); // ← Build HttpClient with proxy
+        return getDomainReportAsync(domain, true).join().toLegacyString();
+    }
 
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create("https://www.virustotal.com/api/v3/domains/" + domain))
-                    .timeout(REQUEST_TIMEOUT)
-                    .header("accept", "application/json")
-                    .header("x-apikey", VirusTotal_KEY)
-                    .GET()
-                    .build();
+    public static String getIpReport(String ip) {
+        return getIpReportAsync(ip, true).join().toLegacyString();
+    }
 
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-            return response.statusCode() == 200
-                    ? response.body()
-                    : "Error: HTTP " + response.statusCode() + "\n" + response.body();
-        } catch (HttpTimeoutException te) {
-            return "Error: request timeout (" + REQUEST_TIMEOUT.toSeconds() + "s)";
-        } catch (Exception e) {
-            return "Exception: " + e.getMessage();
-        }
+    /** Non-blocking domain report, parsed straight from the response stream into ProviderResult.model */
+    public static CompletableFuture<ProviderResult> getDomainReportAsync(String domain) {
+        return getDomainReportAsync(domain, false);
     }
 
-    public static String getIpReport(String ip) {
-        try {
-            HttpClient client = HttpProxyConfig.newHttpClient(); // ← Build HttpClient with proxy
+    /** captureRaw=true also keeps the raw JSON in ProviderResult.body (for JSON views / legacy callers) */
+    public static CompletableFuture<ProviderResult> getDomainReportAsync(String domain, boolean captureRaw) {
+        return report("domains", domain, captureRaw);
+    }
+
+    /** Non-blocking IP report, parsed straight from the response stream into ProviderResult.model */
+    public static CompletableFuture<ProviderResult> getIpReportAsync(String ip) {
+        return getIpReportAsync(ip, false);
+    }
 
+    /** captureRaw=true also keeps the raw JSON in ProviderResult.body (for JSON views / legacy callers) */
+    public static CompletableFuture<ProviderResult> getIpReportAsync(String ip, boolean captureRaw) {
+        return report("ip_addresses", ip, captureRaw);
+    }
+
+    private static CompletableFuture<ProviderResult> report(String collection, String id, boolean captureRaw) {
+        final String key = id == null ? "" : id.trim();
+        if (VirusTotal_KEY == null || VirusTotal_KEY.isEmpty()) {
+            return CompletableFuture.completedFuture(
+                    ProviderResult.rejected(PROVIDER, collection, key, "Error: VT_KEY is empty"));
+        }
+        try {
             HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create("https://www.virustotal.com/api/v3/ip_addresses/" + ip))
+                    .uri(URI.create("https://www.virustotal.com/api/v3/" + collection + "/" + key))
                     .timeout(REQUEST_TIMEOUT)
                     .header("accept", "application/json")
                     .header("x-apikey", VirusTotal_KEY)
                     .GET()
                     .build();
-
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-            return response.statusCode() == 200
-                    ? response.body()
-                    : "Error: HTTP " + response.statusCode() + "\n" + response.body();
-        } catch (HttpTimeoutException te) {
-            return "Error: request timeout (" + REQUEST_TIMEOUT.toSeconds() + "s)";
+            // Shared keep-alive client; only the attributes we show are bound
+            return VerdictCache.lookup(PROVIDER, collection, key, captureRaw, () ->
+                    ProviderHttp.call(PROVIDER, VirusTotal_KEY, collection, key, request,
+                            Analyzer::VirusTotal_ExtractJson, captureRaw));
         } catch (Exception e) {
-            return "Exception: " + e.getMessage();
+            // e.g. malformed indicator that cannot form a URI
+            return CompletableFuture.completedFuture(ProviderResult.failure(PROVIDER, collection, key, e, 0));
         }
     }
 
@@ -17,7 +17,6 @@ import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.List;
-import java.util.regex.Matcher;
 import java.util.stream.Collectors;
 import java.util.regex.Pattern;
 import javax.swing.RowSorter;
@@ -61,31 +60,43 @@ public class WorkFrame extends JFrame {
 
     // ======= History =======
     private JTable historyTable;
-    private DefaultTableModel historyModel;
+    private HistoryTableModel historyModel;
     private JButton histReloadBtn, histDeleteBtn, histClearBtn, histOpenBtn;
-    private java.util.List<String> historyRawLines = new ArrayList<>();
-
-    // 记录当前一次检索关键信息，供写入 history.json
-    private String lastQueryRaw = "";
-    private String lastQueryType = "UNKNOWN";
+    private JTextField histFilterField;
+    private JLabel histFilterStatus;
+    private javax.swing.Timer histFilterDebounce;
+    private int histFilterTicket;
+    private final HistoryStore historyStore = new HistoryStore(Paths.get(HISTORY_PATH));
+    private final HistoryIndex historyIndex = new HistoryIndex(historyStore);
+    // history.json 的读写依次在这个线程上执行（追加与随后的改写保持先后），表格更新回到 EDT
+    private static final java.util.concurrent.ExecutorService HISTORY_IO =
+            java.util.concurrent.Executors.newSingleThreadExecutor(LookupExecutor.daemonFactory("history-io"));
 
     // Provider responses
     private Analyzer.QAXResponseData qaxResp;
     private Analyzer.VirusTotalResponse vtResp;
     private Analyzer.ThreatBookResponse tbResp;
 
+    // 当前检索（截止时间后迟到的结果只补写它自己的历史记录）
+    private SearchRun currentRun;
+    private CancellationToken analysisToken;   // 进行中的 Deep Analysis；null 表示没有
+    // 检索截止时间：到点即视为完成（解除忙碌、写入历史），之后到达的结果再补充
+    private final long searchDeadlineMs = readConfLong("SEARCH_DEADLINE_MS", 8000);
+
     // Tabs
     private JTabbedPane tabbedPane;
 
     // Status bar
     private final JLabel statusLabel = new JLabel(" Ready");
     private final JProgressBar progress = new JProgressBar();
+    private final JLabel healthLabel = new JLabel();  // 限流排队（RateLimiter）与熔断（CircuitBreaker）状态
 
     // Search page
     private final JTextField inputParam = new JTextField(26);
     private final JButton startSearchBtn = new JButton("Search");
     private final JButton deepAnalysisBtn = new JButton("DeepAnalysis");
     private final JButton clearBtn = new JButton("Clear");
+    private final JButton refreshBtn = new JButton("Refresh");
 
     // 顶部徽章
     private JLabel vtRiskBadge;
@@ -239,7 +250,13 @@ public class WorkFrame extends JFrame {
         progress.setVisible(false);
         statusBar.add(statusLabel, BorderLayout.WEST);
         statusBar.add(progress, BorderLayout.EAST);
+        healthLabel.setBorder(BorderFactory.createEmptyBorder(4, 10, 4, 10));
+        healthLabel.setHorizontalAlignment(SwingConstants.RIGHT);
+        statusBar.add(healthLabel, BorderLayout.CENTER);
         add(statusBar, BorderLayout.SOUTH);
+
+        // 每秒刷新一次：限流队列（深度与预计等待）、被熔断的情报源接口
+        new javax.swing.Timer(1000, e -> refreshHealthLabel()).start();
     }
 
     private void initializeBindings() {
@@ -270,6 +287,8 @@ public class WorkFrame extends JFrame {
 
         inputParam.addActionListener(e -> triggerSearchBoth());
         clearBtn.addActionListener(e -> clearAllViews());
+        refreshBtn.setToolTipText("Bypass the verdict cache and query all providers again");
+        refreshBtn.addActionListener(e -> forceRefreshSearch());
         startSearchBtn.setMnemonic(KeyEvent.VK_S);
 
         styleSearchBar(ipqsInput, "IP address", ipqsSearchBtn, ipqsClearBtn);
@@ -279,7 +298,8 @@ public class WorkFrame extends JFrame {
     }
 
     private void initializeStartupState() {
-        loadHistoryIntoTable();
+        historyStore.setOnCompacted(() -> SwingUtilities.invokeLater(this::refreshHistory));
+        refreshHistory();
         if (Files.exists(Paths.get(CONF_PATH))) {
             loadApiKeysFromFile();
         } else {
@@ -312,7 +332,12 @@ public class WorkFrame extends JFrame {
         bar.setFloatable(false);
         JButton about = new JButton("About", svg("/icons/info.svg", 16, 16));
         about.addActionListener(e -> JOptionPane.showMessageDialog(this,
-                "VirusCheckTool V0.2\n",
+                "VirusCheckTool V0.2\n\nConnections (per host):\n" + ProviderHttp.describeHostStats()
+                        + "\n\nRetries (per provider):\n" + RetryPolicy.describeStats()
+                        + "\n\nHedged requests (per provider):\n" + HedgePolicy.describeStats()
+                        + "\n\nCoalesced lookups:\n" + SingleFlight.describeStats()
+                        + "\n\nMicro-batching:\n" + MicroBatcher.describeStats()
+                        + "\n\nLookup executor:\n" + LookupExecutor.describeMetrics(),
                 "About", JOptionPane.INFORMATION_MESSAGE));
         bar.add(about);
 
@@ -415,6 +440,8 @@ public class WorkFrame extends JFrame {
         toolbar.add(deepAnalysisBtn);
         toolbar.add(Box.createHorizontalStrut(8));
         toolbar.add(clearBtn);
+        toolbar.add(Box.createHorizontalStrut(8));
+        toolbar.add(refreshBtn);
 
         JPanel topWrap = new JPanel(new BorderLayout());
         topWrap.setOpaque(false);
@@ -996,50 +1023,50 @@ public class WorkFrame extends JFrame {
     /** 异步执行 QAX TIP 分析，并把结果写入 Analysis 面板（QAX_IP_Analysis 区块 + 原始JSON） */
     private void runDeepAnalysis(String info) {
         final String query = (info == null) ? "" : info.trim();
+        // 与检索一样可被中止：新的分析或 Clear 取消上一次的在途请求，其迟到结果不再写入面板
+        if (analysisToken != null) analysisToken.cancel();
+        final CancellationToken token = new CancellationToken();
+        analysisToken = token;
         setBusy(true, "Checking...");
 
         resetAnalysisGroups();
 
-        new SwingWorker<String, Void>() {
-            @Override
-            protected String doInBackground() {
+        final String qType = detectType(query);
+        // QAX TIP：IP 走 IP 信誉；非 IP（域名/URL）走 URL Check
+        // 开启原文留存：Analysis 面板需要展示原始 JSON
+        lookupOnEdt("QAX", token, () -> ("IPv4".equals(qType) || "IPv6".equals(qType))
+                ? QianxinTIP.AnalysisIPAsync(query, true)
+                : QianxinTIP.AnalysisDomainAsync(query, true), resp -> {
+            if (token.isCancelled()) return;
+            analysisToken = null;
+            try {
+                String raw = resp == null ? null : resp.toLegacyString();
+                System.out.println(raw);
+                if (analysisOutput != null) analysisOutput.setText(raw == null ? "" : raw);
+                if (resp == null || !resp.isOk()) {
+                    return;
+                }
                 String type = detectType(query);
-                // QAX TIP：IP 走 IP 信誉；非 IP（域名/URL）走 URL Check
-                return ("IPv4".equals(type) || "IPv6".equals(type))
-                        ? QianxinTIP.AnalysisIP(query)
-                        : QianxinTIP.AnalysisDomain(query);
-            }
+                setAnalysisMode(type);  // ← 先决定显示哪个分组
 
-            @Override
-            protected void done() {
-                try {
-                    String resp = get();
-                    System.out.println(resp);
-                    if (resp == null) {
-                        return;
-                    }
-                    String type = detectType(query);
-                    setAnalysisMode(type);  // ← 先决定显示哪个分组
-
-                    if ("IPv4".equals(type) || "IPv6".equals(type)) {
-                        Analyzer.QAXIpReputationResponse obj =
-                                Analyzer.QAX_AnalysisIP_ParseJson(resp);
-                        fillQaxIpAnalysisBlockFromIp(obj, query);
-                    } else {
-                        Analyzer.QAXDomainCheckResponse obj =
-                                Analyzer.QAX_AnalysisDomain_ParseJson(resp);
-                        fillQaxDomainAnalysisBlockFromDomain(obj, query);
-                    }
-                } catch (Exception ex) {
-                    // 出错时保持 IP 区块为空态
-                    System.out.println("ERROR");
-                    clearQaxIpAnalysisBlock();
-                    clearQaxDomainAnalysisBlock();
-                } finally {
-                    setBusy(false, "Analysis completed");
+                if ("IPv4".equals(type) || "IPv6".equals(type)) {
+                    Analyzer.QAXIpReputationResponse obj =
+                            resp.model(Analyzer.QAXIpReputationResponse.class);
+                    fillQaxIpAnalysisBlockFromIp(obj, query);
+                } else {
+                    Analyzer.QAXDomainCheckResponse obj =
+                            resp.model(Analyzer.QAXDomainCheckResponse.class);
+                    fillQaxDomainAnalysisBlockFromDomain(obj, query);
                 }
+            } catch (Exception ex) {
+                // 出错时保持 IP 区块为空态
+                System.out.println("ERROR");
+                clearQaxIpAnalysisBlock();
+                clearQaxDomainAnalysisBlock();
+            } finally {
+                setBusy(false, "Analysis completed");
             }
-        }.execute();
+        });
     }
 
     private void fillQaxIpAnalysisBlockFromIp(Analyzer.QAXIpReputationResponse r, String ipKey) {
@@ -1324,46 +1351,41 @@ public class WorkFrame extends JFrame {
         ipqsStats.setText("Querying…");
         setIPQSAllNeutral();
 
-        new SwingWorker<String, Void>() {
-            @Override
-            protected String doInBackground() {
-                return IPQualityScore.queryIp(ip);
-            }
+        lookupOnEdt("IPQS", () -> IPQualityScore.queryIpAsync(ip), res -> {
+            try {
+                if (res == null) {
+                    ipqsStats.setText("Empty response");
+                    return;
+                }
+                if (!res.isOk()) {
+                    ipqsStats.setText(res.error);
+                    return;
+                }
 
-            @Override
-            protected void done() {
-                try {
-                    String json = get();
+                Analyzer.IPQSResponse r = res.model(Analyzer.IPQSResponse.class);
+                if (r == null) {
+                    ipqsStats.setText("Empty response");
+                    return;
+                }
+                updateIPQSWidgets(r);
 
-                    if (json == null) {
-                        ipqsStats.setText("Empty response");
-                        return;
-                    }
-                    if (json.startsWith("Error:") || json.startsWith("Exception:")) {
-                        ipqsStats.setText(json);
-                        return;
-                    }
+                String summary = String.format(
+                        "fraud_score=%d, proxy=%s, vpn=%s, tor=%s, bot=%s",
+                        r.fraud_score, r.proxy, r.vpn, r.tor, r.bot_status
+                );
+                ipqsStats.setText(summary);
+                markCached(ipqsStats, res);
 
-                    Analyzer.IPQSResponse r = Analyzer.IPQS_ParseJson(json);
-                    updateIPQSWidgets(r);
-
-                    String summary = String.format(
-                            "fraud_score=%d, proxy=%s, vpn=%s, tor=%s, bot=%s",
-                            r.fraud_score, r.proxy, r.vpn, r.tor, r.bot_status
-                    );
-                    ipqsStats.setText(summary);
-
-                } catch (Exception ex) {
-                    ipqsStats.setText("IPQS parse failed: " + ex.getMessage());
-                    status("IPQualityScore error: " + ex.getMessage());
-                } finally {
-                    setBusy(false, "IPQualityScore completed");
-                    ipqsSearchBtn.setEnabled(true);
-                    ipqsInput.setEnabled(true);
-                    ipqsClearBtn.setEnabled(true);
-                }
+            } catch (Exception ex) {
+                ipqsStats.setText("IPQS parse failed: " + ex.getMessage());
+                status("IPQualityScore error: " + ex.getMessage());
+            } finally {
+                setBusy(false, "IPQualityScore completed");
+                ipqsSearchBtn.setEnabled(true);
+                ipqsInput.setEnabled(true);
+                ipqsClearBtn.setEnabled(true);
             }
-        }.execute();
+        });
     }
 
     /**
@@ -1483,6 +1505,13 @@ public class WorkFrame extends JFrame {
     private void saveApiKeysToFile() {
         try {
             Properties p = new Properties();
+            // 保留 conf.ini 中面板未展示的调优项（连接池等）
+            File existing = new File(CONF_PATH);
+            if (existing.exists()) {
+                try (FileInputStream in = new FileInputStream(existing)) {
+                    p.load(in);
+                }
+            }
             // api keys
             String qax = new String(qaxKeyField.getPassword()).trim();
             String vt = new String(vtKeyField.getPassword()).trim();
@@ -1656,13 +1685,13 @@ public class WorkFrame extends JFrame {
             inputParam.requestFocus();
             return;
         }
+        // 上一次检索还有在途请求：中止并丢弃其迟到结果
+        cancelSearch(currentRun);
         setBusy(true, "QAX & VirusTotal & ThreatBook querying…");
 
         // Domain normalization for VT/TB (URL -> host)
         final String vtKey = deriveDomainForVT(raw);
-
-        lastQueryRaw = raw;
-        lastQueryType = detectType(vtKey);  // IPv4 / IPv6 / DOMAIN
+        final String queryType = detectType(vtKey);  // IPv4 / IPv6 / DOMAIN
 
         // Pre-clear + 状态
         if (qaxTableModel != null) qaxTableModel.setRowCount(0);
@@ -1680,99 +1709,209 @@ public class WorkFrame extends JFrame {
         if (vtStatsLabel != null) vtStatsLabel.setText("Querying…");
         if (tbStatsLabel != null) tbStatsLabel.setText("Querying…");
 
-        final java.util.concurrent.atomic.AtomicInteger pending = new java.util.concurrent.atomic.AtomicInteger(3);
+        final SearchRun run = new SearchRun(raw, vtKey, queryType);
+        currentRun = run;
+        run.deadline = new javax.swing.Timer((int) Math.min(Integer.MAX_VALUE, searchDeadlineMs), e -> finishSearch(run));
+        run.deadline.setRepeats(false);
+        run.deadline.start();
 
+        // 三个查询各自在 LookupExecutor 的 bulkhead 内发起，返回后立即在 EDT 上渲染；
+        // 旧检索的迟到结果不再覆盖界面，只补写它的历史记录（已取消的检索则直接丢弃）
         // QAX
-        new SwingWorker<String, Void>() {
-            @Override
-            protected String doInBackground() {
-                return QianxinTIP.SendVirusDetection(raw);
-            }
-
-            @Override
-            protected void done() {
-                try {
-                    qaxResp = Analyzer.QAX_ParseJson(get());
-                    int rows = fillQaxTable(qaxResp);
-                    updateQaxTotalBadge(rows);
-                    if (qaxStatsLabel != null)
-                        qaxStatsLabel.setText(rows > 0 ? ("Total " + rows + " items") : "Mo Data,Clear");
-                } catch (Exception ex) {
-                    qaxStatsLabel.setText("Query failed — Please check API key / IP whitelist / network");
-                    status("QAX error: " + ex.getMessage());
-                } finally {
-                    if (pending.decrementAndGet() == 0) onAllThreeDone();
-                }
+        lookupOnEdt("QAX", run.token, () -> QianxinTIP.SendVirusDetectionAsync(raw), r -> {
+            try {
+                Analyzer.QAXResponseData data = r.isOk() ? r.model(Analyzer.QAXResponseData.class) : null;
+                if (data != null) run.qaxTotal = data.data == null ? 0 : data.data.size();
+                if (run != currentRun) return;
+
+                if (!r.isOk()) throw new IllegalStateException(r.error);
+                qaxResp = data;
+                int rows = fillQaxTable(qaxResp);
+                updateQaxTotalBadge(rows);
+                if (qaxStatsLabel != null)
+                    qaxStatsLabel.setText(rows > 0 ? ("Total " + rows + " items") : "Mo Data,Clear");
+                markCached(qaxStatsLabel, r);
+            } catch (Exception ex) {
+                qaxStatsLabel.setText("Query failed — Please check API key / IP whitelist / network");
+                status("QAX error: " + ex.getMessage());
+            } finally {
+                onProviderDone(run, "QAX");
             }
-        }.execute();
+        });
 
         // VirusTotal
-        new SwingWorker<String, Void>() {
-            @Override
-            protected String doInBackground() {
-                String type = detectType(vtKey);
-                return ("IPv4".equals(type) || "IPv6".equals(type))
-                        ? VirusTotal.getIpReport(vtKey)
-                        : VirusTotal.getDomainReport(vtKey);
-            }
+        String vtType = detectType(vtKey);
+        lookupOnEdt("VirusTotal", run.token, () -> (("IPv4".equals(vtType) || "IPv6".equals(vtType))
+                ? VirusTotal.getIpReportAsync(vtKey)
+                : VirusTotal.getDomainReportAsync(vtKey)), r -> {
+            try {
+                Analyzer.VirusTotalResponse data = r.isOk() ? r.model(Analyzer.VirusTotalResponse.class) : null;
+                if (data != null && data.data != null && data.data.attributes != null) {
+                    run.vtStats = data.data.attributes.last_analysis_stats;
+                }
+                if (run != currentRun) return;
 
-            @Override
-            protected void done() {
-                try {
-                    String json = get();
-                    if (json == null || json.startsWith("Error:") || json.startsWith("Exception:")) {
-                        if (vtStatsLabel != null)
-                            vtStatsLabel.setText(json == null ? "Query failed (empty return)" : json);
-                    } else {
-                        vtResp = Analyzer.VirusTotal_ParseJson(json);
-                        fillVtViews(vtResp);
-                    }
-                } catch (Exception ex) {
-                    if (vtStatsLabel != null) vtStatsLabel.setText("VT parse failed: " + ex.getMessage());
-                    status("VirusTotal error: " + ex.getMessage());
-                } finally {
-                    if (pending.decrementAndGet() == 0) onAllThreeDone();
+                if (!r.isOk()) {
+                    if (vtStatsLabel != null) vtStatsLabel.setText(r.error);
+                } else {
+                    vtResp = data;
+                    fillVtViews(vtResp);
+                    markCached(vtStatsLabel, r);
                 }
+            } catch (Exception ex) {
+                if (vtStatsLabel != null) vtStatsLabel.setText("VT parse failed: " + ex.getMessage());
+                status("VirusTotal error: " + ex.getMessage());
+            } finally {
+                onProviderDone(run, "VirusTotal");
             }
-        }.execute();
+        });
 
         // ThreatBook
-        new SwingWorker<String, Void>() {
-            @Override
-            protected String doInBackground() {
-                return ThreatBook.QueryDNS(vtKey);
-            }
+        lookupOnEdt("ThreatBook", run.token, () -> ThreatBook.QueryDNSAsync(vtKey), r -> {
+            try {
+                Analyzer.ThreatBookResponse data = r.isOk() ? r.model(Analyzer.ThreatBookResponse.class) : null;
+                run.tb = data;
+                if (run != currentRun) return;
 
-            @Override
-            protected void done() {
-                try {
-                    String json = get();
-                    if (json == null || json.startsWith("Error:") || json.startsWith("Exception:")) {
-                        if (tbStatsLabel != null)
-                            tbStatsLabel.setText(json == null ? "Query failed (empty return)" : json);
-                    } else {
-                        tbResp = Analyzer.ThreatBook_ParseJson(json);
-                        fillTbViews(vtKey, tbResp);
-                    }
-                } catch (Exception ex) {
-                    if (tbStatsLabel != null) tbStatsLabel.setText("ThreatBook parse failed: " + ex.getMessage());
-                    status("ThreatBook error: " + ex.getMessage());
-                } finally {
-                    if (pending.decrementAndGet() == 0) onAllThreeDone();
+                if (!r.isOk()) {
+                    if (tbStatsLabel != null) tbStatsLabel.setText(r.error);
+                } else {
+                    tbResp = data;
+                    fillTbViews(vtKey, tbResp);
+                    markCached(tbStatsLabel, r);
                 }
+            } catch (Exception ex) {
+                if (tbStatsLabel != null) tbStatsLabel.setText("ThreatBook parse failed: " + ex.getMessage());
+                status("ThreatBook error: " + ex.getMessage());
+            } finally {
+                onProviderDone(run, "ThreatBook");
             }
-        }.execute();
+        });
+    }
+
+    /** 一次检索的状态（仅在 EDT 上读写） */
+    private static final class SearchRun {
+        final String raw;
+        final String vtKey;
+        final String type;
+        final String timeIso = ZonedDateTime.now(ZoneId.systemDefault())
+                .format(DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+        final long startNanos = System.nanoTime();
+        final Set<String> pending = new LinkedHashSet<>(Arrays.asList("QAX", "VirusTotal", "ThreatBook"));
+        final CancellationToken token = new CancellationToken();
+        javax.swing.Timer deadline;
+        boolean finished;              // 三个都已返回，或已到截止时间
+        boolean cancelled;             // 被新检索或 Clear 中止：在途请求已取消，迟到结果丢弃
+        String historyLine;            // 已写入 history.json 的那一行；null 表示尚未写入
+        long historyId = -1;           // 该行在 HistoryStore 中的 id
+
+        int qaxTotal = -1;
+        Analyzer.LastAnalysisStats vtStats;
+        Analyzer.ThreatBookResponse tb;
+
+        SearchRun(String raw, String vtKey, String type) {
+            this.raw = raw;
+            this.vtKey = vtKey;
+            this.type = type;
+        }
+    }
+
+    /** 某个情报源返回（成功或失败）：全部返回则提前完成；截止后到达的结果补写历史 */
+    private void onProviderDone(SearchRun run, String provider) {
+        if (run.cancelled) return;
+        run.pending.remove(provider);
+        if (!run.finished) {
+            if (run.pending.isEmpty()) finishSearch(run);
+            return;
+        }
+        updateHistory(run);
+        if (run == currentRun) {
+            long sec = (System.nanoTime() - run.startNanos) / 1_000_000_000L;
+            status(provider + " arrived late (" + sec + "s), history updated"
+                    + (run.pending.isEmpty() ? "" : " — still waiting for " + String.join(", ", run.pending)));
+        }
     }
 
-    private void onAllThreeDone() {
-        setBusy(false, "QAX & VirusTotal & ThreatBook Search Completed");
+    /** 检索完成：全部返回或到达截止时间（以先到者为准） */
+    private void finishSearch(SearchRun run) {
+        if (run.finished) return;
+        run.finished = true;
+        run.deadline.stop();
+        if (run == currentRun) {
+            if (run.pending.isEmpty()) {
+                setBusy(false, "QAX & VirusTotal & ThreatBook Search Completed");
+            } else {
+                setBusy(false, "Search completed at deadline — still waiting for "
+                        + String.join(", ", run.pending) + " (results will be filled in)");
+            }
+        }
         try {
-            appendHistoryFromCurrent();
-            loadHistoryIntoTable();
+            appendHistory(run);
         } catch (Exception ignore) {
         }
     }
 
+    /**
+     * 中止一次检索：取消其在途的 HTTP 请求与排队中的请求，之后到达的结果一律丢弃。
+     * 未到截止时间的检索不写历史；已写入历史但仍有未返回的情报源时，把它们记为 cancelled。
+     */
+    private void cancelSearch(SearchRun run) {
+        if (run == null || run.cancelled || (run.finished && run.pending.isEmpty())) return;
+        run.cancelled = true;
+        run.deadline.stop();
+        run.token.cancel();
+        if (run.finished && run.pending.contains("ThreatBook")) updateHistory(run);
+    }
+
+    /** 结果来自 VerdictCache 时，在统计标签后追加 "cached (年龄)" */
+    private void markCached(JLabel label, ProviderResult r) {
+        if (label == null || r == null || !r.cached) return;
+        label.setText(label.getText() + " | cached (" + VerdictCache.formatAge(r.ageMillis()) + ")");
+    }
+
+    /** 强制刷新：丢弃当前指标的缓存后重新检索 */
+    private void forceRefreshSearch() {
+        final String raw = inputParam.getText() == null ? "" : inputParam.getText().trim();
+        if (raw.isEmpty()) {
+            warn("Please enter IP / domain / URL");
+            inputParam.requestFocus();
+            return;
+        }
+        VerdictCache.invalidate(raw);
+        VerdictCache.invalidate(deriveDomainForVT(raw));
+        triggerSearchBoth();
+    }
+
+    /**
+     * 在 LookupExecutor 中该情报源的 bulkhead 内发起异步查询（不阻塞线程等待响应），结果回到 EDT 处理；
+     * provider 的异步方法不会异常结束，异常分支仅兜底。
+     */
+    private void lookupOnEdt(String provider,
+                             java.util.function.Supplier<java.util.concurrent.CompletableFuture<ProviderResult>> lookup,
+                             java.util.function.Consumer<ProviderResult> onResult) {
+        lookupOnEdt(provider, CancellationToken.NONE, lookup, onResult);
+    }
+
+    /** 同上，查询受 token 控制：取消后排队中的任务不再发起，在途请求被中止 */
+    private void lookupOnEdt(String provider, CancellationToken token,
+                             java.util.function.Supplier<java.util.concurrent.CompletableFuture<ProviderResult>> lookup,
+                             java.util.function.Consumer<ProviderResult> onResult) {
+        LookupExecutor.submitAsync(provider, () -> {
+                    if (token.isCancelled()) {
+                        return java.util.concurrent.CompletableFuture.completedFuture(
+                                ProviderResult.cancelled(provider, "?", ""));
+                    }
+                    try {
+                        return token.callWith(lookup::get);
+                    } catch (Exception e) {
+                        return java.util.concurrent.CompletableFuture.completedFuture(
+                                ProviderResult.failure(provider, "?", "", e, 0));
+                    }
+                },
+                r -> onResult.accept(r != null ? r : ProviderResult.failure(provider, "?", "", null, 0)),
+                ex -> onResult.accept(ProviderResult.failure(provider, "?", "", ex, 0)));
+    }
+
     // ===== Write QAX data into table (返回写入行数) =====
     private int fillQaxTable(Analyzer.QAXResponseData resp) {
         qaxTableModel.setRowCount(0);
@@ -1956,7 +2095,7 @@ public class WorkFrame extends JFrame {
     private void setBusy(boolean busy, String msg) {
         startSearchBtn.setEnabled(!busy);
         inputParam.setEnabled(!busy);
-        clearBtn.setEnabled(!busy);
+        refreshBtn.setEnabled(!busy);
 
         status(msg);
         progress.setVisible(busy);
@@ -1964,6 +2103,17 @@ public class WorkFrame extends JFrame {
         setCursor(busy ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : Cursor.getDefaultCursor());
     }
 
+    private void refreshHealthLabel() {
+        java.util.List<String> parts = new java.util.ArrayList<>();
+        String open = CircuitBreaker.describeOpen();
+        if (!open.isEmpty()) parts.add("Short-circuited: " + open);
+        String q = RateLimiter.describeQueues();
+        if (!q.isEmpty()) parts.add("Rate limit: " + q);
+        if (LookupExecutor.queuedCount() > 0) parts.add("Lookups: " + LookupExecutor.describeMetrics());
+        healthLabel.setText(String.join("  |  ", parts));
+        healthLabel.setForeground(open.isEmpty() ? UIManager.getColor("Label.foreground") : BAD_FG);
+    }
+
     private void status(String msg) {
         statusLabel.setText(" " + msg);
     }
@@ -1977,8 +2127,8 @@ public class WorkFrame extends JFrame {
         status("Error:" + msg);
     }
 
-    // URL → Domain (for VT/TB)
-    private String deriveDomainForVT(String raw) {
+    // URL → Domain (for VT/TB)；批量模式（BatchRunner）也使用
+    static String deriveDomainForVT(String raw) {
         String s = raw == null ? "" : raw.trim();
         try {
             if (s.startsWith("http://") || s.startsWith("https://")) {
@@ -1995,6 +2145,15 @@ public class WorkFrame extends JFrame {
      * 清空输入与三表内容 + 恢复状态栏
      */
     private void clearAllViews() {
+        // 检索进行中按 Clear：中止在途请求
+        boolean running = (currentRun != null && !currentRun.finished) || analysisToken != null;
+        cancelSearch(currentRun);
+        currentRun = null;
+        if (analysisToken != null) {
+            analysisToken.cancel();
+            analysisToken = null;
+        }
+        if (running) setBusy(false, "Cancelled");
         inputParam.setText("");
         if (qaxTableModel != null) qaxTableModel.setRowCount(0);
         if (vtModel != null) vtModel.setRowCount(0);
@@ -2008,7 +2167,7 @@ public class WorkFrame extends JFrame {
         if (analysisOutput != null) analysisOutput.setText("");
 
         resetBadgesToDefault();
-        status("Cleared");
+        status(running ? "Search cancelled, cleared" : "Cleared");
     }
 
     private void enableCellTooltips(JTable table) {
@@ -2409,15 +2568,13 @@ public class WorkFrame extends JFrame {
         JPanel card = new JPanel(new BorderLayout());
         card.setBorder(BorderFactory.createEmptyBorder(16, 16, 16, 16));
 
-        String[] cols = {"Time", "Query", "Type", "Qi-Anxin TIP", "VirusTotal", "ThreatBook"};
-        historyModel = new DefaultTableModel(cols, 0) {
-            @Override
-            public boolean isCellEditable(int r, int c) {
-                return false;
-            }
-        };
+        // 分页模型：只解码可见的行，排序在模型内部完成
+        historyModel = new HistoryTableModel(historyStore);
         historyTable = new JTable(historyModel);
         stylizeTable(historyTable);
+        historyTable.setAutoCreateRowSorter(false);
+        historyTable.setRowSorter(historyModel.sorter());
+        historyTable.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
         historyTable.setAutoResizeMode(JTable.AUTO_RESIZE_ALL_COLUMNS);
         historyTable.getTableHeader().setResizingAllowed(true);
 
@@ -2431,8 +2588,8 @@ public class WorkFrame extends JFrame {
         histClearBtn = new JButton("Clear All");
         histOpenBtn = new JButton("Open File");
 
-        histReloadBtn.addActionListener(e -> loadHistoryIntoTable());
-        histDeleteBtn.addActionListener(e -> deleteSelectedHistoryRow());
+        histReloadBtn.addActionListener(e -> refreshHistory());
+        histDeleteBtn.addActionListener(e -> deleteSelectedHistoryRows());
         histClearBtn.addActionListener(e -> clearHistoryFile());
         histOpenBtn.addActionListener(e -> {
             try {
@@ -2449,127 +2606,207 @@ public class WorkFrame extends JFrame {
         bar.addSeparator();
         bar.add(histOpenBtn);
 
-        card.add(bar, BorderLayout.NORTH);
+        // 过滤条：输入停顿后在后台查询 HistoryIndex
+        histFilterField = new JTextField();
+        histFilterField.putClientProperty(FlatClientProperties.PLACEHOLDER_TEXT,
+                "Filter, e.g.  under:example.com since:30d vt>3");
+        histFilterField.putClientProperty(FlatClientProperties.STYLE,
+                "arc:999; focusWidth:1; innerFocusWidth:0; borderWidth:1;");
+        histFilterField.setToolTipText("<html>"
+                + "<b>word</b> / <b>word*</b> &nbsp;query contains the word (or prefix)<br>"
+                + "<b>under:example.com</b> &nbsp;host is example.com or a subdomain<br>"
+                + "<b>type:domain</b> &nbsp;<b>tb:malicious</b><br>"
+                + "<b>vt&gt;3</b> &nbsp;<b>qax&gt;=1</b> &nbsp;<b>vt_harmless&lt;10</b> &nbsp;(= &gt; &gt;= &lt; &lt;=)<br>"
+                + "<b>since:30d</b> &nbsp;<b>since:12h</b> &nbsp;<b>since:2024-01-01</b> &nbsp;<b>before:2024-02-01</b><br>"
+                + "All terms must match.</html>");
+        histFilterStatus = new JLabel(" ");
+        histFilterStatus.setForeground(new Color(0x666666));
+        JButton histFilterClearBtn = new JButton("Clear Filter");
+        histFilterClearBtn.putClientProperty(FlatClientProperties.BUTTON_TYPE, "roundRect");
+        histFilterClearBtn.addActionListener(e -> histFilterField.setText(""));
+
+        histFilterDebounce = new javax.swing.Timer(200, e -> applyHistoryFilter());
+        histFilterDebounce.setRepeats(false);
+        addDocChange(histFilterField, histFilterDebounce::restart);
+        histFilterField.addActionListener(e -> {
+            histFilterDebounce.stop();
+            applyHistoryFilter();
+        });
+
+        JPanel filterRow = new JPanel(new BorderLayout(8, 0));
+        filterRow.setBorder(BorderFactory.createEmptyBorder(8, 0, 8, 0));
+        filterRow.add(histFilterField, BorderLayout.CENTER);
+        JPanel filterRight = new JPanel(new FlowLayout(FlowLayout.RIGHT, 8, 0));
+        filterRight.add(histFilterStatus);
+        filterRight.add(histFilterClearBtn);
+        filterRow.add(filterRight, BorderLayout.EAST);
+
+        JPanel north = new JPanel(new BorderLayout());
+        north.add(bar, BorderLayout.NORTH);
+        north.add(filterRow, BorderLayout.SOUTH);
+
+        card.add(north, BorderLayout.NORTH);
         card.add(sp, BorderLayout.CENTER);
         return card;
     }
 
-    private void appendHistoryFromCurrent() {
-        String timeIso = ZonedDateTime.now(ZoneId.systemDefault())
-                .format(DateTimeFormatter.ISO_OFFSET_DATE_TIME);
-
-        int qaxTotal = (qaxTableModel != null) ? qaxTableModel.getRowCount() : -1;
-
-        int vtM = -1, vtS = -1, vtH = -1, vtU = -1;
-        if (vtResp != null && vtResp.data != null && vtResp.data.attributes != null
-                && vtResp.data.attributes.last_analysis_stats != null) {
-            Analyzer.LastAnalysisStats s = vtResp.data.attributes.last_analysis_stats;
-            vtM = s.malicious;
-            vtS = s.suspicious;
-            vtH = s.harmless;
-            vtU = s.undetected;
+    private String historyJson(SearchRun run) {
+        HistoryRecord rec = new HistoryRecord();
+        rec.time = run.timeIso;
+        rec.query = run.raw;
+        rec.type = run.type;
+        rec.qaxTotal = run.qaxTotal;
+        if (run.vtStats != null) {
+            rec.vtMalicious = run.vtStats.malicious;
+            rec.vtSuspicious = run.vtStats.suspicious;
+            rec.vtHarmless = run.vtStats.harmless;
+            rec.vtUndetected = run.vtStats.undetected;
         }
 
-        String tbStatus = deriveTbStatus(tbResp);
-        boolean tbMal = "malicious".equals(tbStatus);
+        // 截止时间到了 ThreatBook 仍未返回：先记 pending，结果到达后再改写
+        rec.tbStatus = run.pending.contains("ThreatBook")
+                ? (run.cancelled ? "cancelled" : "pending")
+                : deriveTbStatus(run.tb);
+        rec.tbMalicious = "malicious".equals(rec.tbStatus);
+        return rec.toJson();
+    }
 
-        String jsonLine = "{"
-                + "\"time\":\"" + jsonEscape(timeIso) + "\","
-                + "\"query\":\"" + jsonEscape(lastQueryRaw) + "\","
-                + "\"type\":\"" + jsonEscape(lastQueryType) + "\","
-                + "\"qax_total\":" + qaxTotal + ","
-                + "\"vt_malicious\":" + vtM + ","
-                + "\"vt_suspicious\":" + vtS + ","
-                + "\"vt_harmless\":" + vtH + ","
-                + "\"vt_undetected\":" + vtU + ","
-                + "\"tb_status\":\"" + jsonEscape(tbStatus) + "\","
-                + "\"tb_malicious\":" + tbMal
-                + "}";
+    /** 追加一条历史：只写新的一行、只往表格里加新的一行 */
+    private void appendHistory(SearchRun run) {
+        String jsonLine = historyJson(run);
+        // 先记下内容：写入完成前到达的改写按内容找到这一行（写入在同一线程上排在它前面）
+        run.historyLine = jsonLine;
+        historyIo(() -> historyStore.append(jsonLine), id -> {
+            if (run.historyLine == jsonLine) run.historyId = id;
+            historyChanged();
+        }, e -> System.err.println("[History] write failed: " + e.getMessage()));
+    }
 
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(HISTORY_PATH, StandardCharsets.UTF_8, true))) {
-            bw.write(jsonLine);
-            bw.newLine();
-        } catch (IOException e) {
-            System.err.println("[History] write failed: " + e.getMessage());
+    /**
+     * 迟到的结果：替换这次检索已写入的那一行（找不到时追加）。
+     * 存储中新记录位于末尾，表格按文件顺序显示时该行随之移到末尾。
+     */
+    private void updateHistory(SearchRun run) {
+        if (run.historyLine == null) {
+            appendHistory(run);
+            return;
         }
+        String jsonLine = historyJson(run);
+        long oldId = run.historyId;
+        String oldLine = run.historyLine;
+        run.historyLine = jsonLine;
+        run.historyId = -1;
+        historyIo(() -> historyStore.replace(oldId, oldLine, jsonLine), newId -> {
+            // newId < 0：已被删除、清空或外部改写，不再恢复
+            if (newId >= 0 && run.historyLine == jsonLine) run.historyId = newId;
+            historyChanged();
+        }, e -> System.err.println("[History] update failed: " + e.getMessage()));
+    }
+
+    /** 与 history.json 同步：在后台读文件（启动时可能要重建 .idx），回到 EDT 后刷新表格 */
+    private void refreshHistory() {
+        historyIo(() -> {
+            historyStore.sync();
+            return null;
+        }, v -> historyChanged(), e -> JOptionPane.showMessageDialog(this,
+                "Load history failed: " + e.getMessage(), "History", JOptionPane.WARNING_MESSAGE));
+    }
+
+    /** 存储已同步（写入本身会同步）：只有追加时只插入新行；删除、压缩或文件被外部改写时重建显示 */
+    private void historyChanged() {
+        historyModel.refresh();
+        // 有过滤条件时索引随之增量更新并重新查询，让新记录按条件出现；没有过滤条件时不建索引
+        if (historyModel.isFiltered()) applyHistoryFilter();
+    }
+
+    /** 在 HISTORY_IO 上执行 work（读写文件），完成后在 EDT 上调用 onDone，出错时在 EDT 上调用 onError */
+    private <T> void historyIo(java.util.concurrent.Callable<T> work,
+                               java.util.function.Consumer<? super T> onDone,
+                               java.util.function.Consumer<Exception> onError) {
+        HISTORY_IO.execute(() -> {
+            T value;
+            try {
+                value = work.call();
+            } catch (Exception e) {
+                SwingUtilities.invokeLater(() -> onError.accept(e));
+                return;
+            }
+            SwingUtilities.invokeLater(() -> onDone.accept(value));
+        });
     }
 
-    private void loadHistoryIntoTable() {
-        historyModel.setRowCount(0);
-        historyRawLines.clear();
-
-        File f = new File(HISTORY_PATH);
-        if (!f.exists()) return;
-
-        try {
-            java.util.List<String> lines = Files.readAllLines(f.toPath(), StandardCharsets.UTF_8);
-            historyRawLines.addAll(lines);
-
-            for (String line : lines) {
-                if (line == null || line.trim().isEmpty()) continue;
-
-                String time = extractString(line, "time");
-                String query = extractString(line, "query");
-                String type = extractString(line, "type");
-
-                int qax = extractInt(line, "qax_total", -1);
-                int m = extractInt(line, "vt_malicious", -1);
-                int s = extractInt(line, "vt_suspicious", -1);
-                int h = extractInt(line, "vt_harmless", -1);
-                int u = extractInt(line, "vt_undetected", -1);
-
-                String vtCell;
-                if (m < 0 || s < 0 || h < 0 || u < 0) {
-                    vtCell = "—";
-                } else {
-                    int num = Math.max(0, m) + Math.max(0, s);
-                    int den = num + Math.max(0, h) + Math.max(0, u);
-                    vtCell = den > 0 ? (num + "/" + den) : "—";
-                }
-
-                String tbStatus = extractString(line, "tb_status");
-                String tbCell;
-                if (tbStatus != null && !tbStatus.isEmpty()) {
-                    tbCell = tbStatus;
-                } else {
-                    boolean tb = extractBool(line, "tb_malicious", false);
-                    tbCell = tb ? "malicious" : "clean";
-                }
-
-                historyModel.addRow(new Object[]{
-                        time, query, type,
-                        (qax >= 0 ? qax : "—"),
-                        vtCell, tbCell
-                });
-            }
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(this, "Load history failed: " + e.getMessage(),
-                    "History", JOptionPane.WARNING_MESSAGE);
+    /**
+     * 在后台按过滤条的内容查询 HistoryIndex，结果交给表格模型；较新的查询会使旧结果作废。
+     * 索引在第一次过滤时才建立，过滤条清空后释放。
+     */
+    private void applyHistoryFilter() {
+        final String expression = histFilterField.getText();
+        final int ticket = ++histFilterTicket;
+        if (expression.trim().isEmpty()) {
+            historyModel.setFilter(null);
+            histFilterStatus.setText(" ");
+            releaseHistoryIndex();
+            return;
         }
+        final long[] tookMs = new long[1];
+        LookupExecutor.submit("History", () -> {
+            historyIndex.update();
+            long t0 = System.nanoTime();
+            long[] ids = historyIndex.search(expression);
+            tookMs[0] = (System.nanoTime() - t0) / 1_000_000;
+            return ids;
+        }, ids -> {
+            if (ticket != histFilterTicket) {
+                // 过滤条已清空时，这次迟到的查询可能又把索引建了起来
+                if (!historyModel.isFiltered()) releaseHistoryIndex();
+                return;
+            }
+            historyModel.setFilter(ids);
+            histFilterStatus.setForeground(new Color(0x666666));
+            histFilterStatus.setText(ids == null ? " "
+                    : String.format("%,d of %,d records (%d ms)", ids.length, historyModel.totalCount(), tookMs[0]));
+        }, err -> {
+            if (ticket != histFilterTicket) return;
+            String msg = err.getMessage() == null ? err.toString() : err.getMessage();
+            histFilterStatus.setForeground(new Color(0xC62828));
+            histFilterStatus.setText(msg.startsWith("Error:") ? msg : "Error: " + msg);
+        });
     }
 
-    private void deleteSelectedHistoryRow() {
-        int viewRow = historyTable.getSelectedRow();
-        if (viewRow < 0) {
+    private void releaseHistoryIndex() {
+        LookupExecutor.submit("History", () -> {
+            historyIndex.release();
+            return null;
+        }, v -> { }, err -> { });
+    }
+
+    /** 删除选中的行（可多选）：存储里只追加一行墓碑，表格随即移除这些行 */
+    private void deleteSelectedHistoryRows() {
+        int[] viewRows = historyTable.getSelectedRows();
+        if (viewRows.length == 0) {
             JOptionPane.showMessageDialog(this, "Please select a row to delete.", "History", JOptionPane.INFORMATION_MESSAGE);
             return;
         }
-        int modelRow = historyTable.convertRowIndexToModel(viewRow);
-        if (modelRow < 0 || modelRow >= historyRawLines.size()) return;
-
-        historyRawLines.remove(modelRow);
-        historyModel.removeRow(modelRow);
+        int[] modelRows = new int[viewRows.length];
+        for (int i = 0; i < viewRows.length; i++) modelRows[i] = historyTable.convertRowIndexToModel(viewRows[i]);
 
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(HISTORY_PATH, StandardCharsets.UTF_8, false))) {
-            for (String ln : historyRawLines) {
-                if (ln != null && !ln.trim().isEmpty()) {
-                    bw.write(ln);
-                    bw.newLine();
-                }
-            }
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(this, "Delete failed: " + e.getMessage(), "History", JOptionPane.WARNING_MESSAGE);
+        long[] ids = historyModel.idsAt(modelRows);
+        if (ids == null) {
+            // 显示已过时（例如后台刚压缩完）：刷新后请重新选择
+            refreshHistory();
+            return;
         }
+        long generation = historyModel.generation();
+        historyIo(() -> historyStore.delete(generation, ids), ok -> {
+                    // ok 为 false：其间发生过压缩，没有删除；刷新后请重新选择
+                    if (ok) historyChanged();
+                    else refreshHistory();
+                },
+                e -> {
+                    JOptionPane.showMessageDialog(this, "Delete failed: " + e.getMessage(),
+                            "History", JOptionPane.WARNING_MESSAGE);
+                    refreshHistory();
+                });
     }
 
     private void clearHistoryFile() {
@@ -2578,51 +2815,16 @@ public class WorkFrame extends JFrame {
                 "History", JOptionPane.OK_CANCEL_OPTION);
         if (ok != JOptionPane.OK_OPTION) return;
 
-        try {
-            Files.write(new File(HISTORY_PATH).toPath(), new byte[0]);
-            loadHistoryIntoTable();
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(this, "Clear failed: " + e.getMessage(), "History", JOptionPane.WARNING_MESSAGE);
-        }
+        historyIo(() -> {
+            historyStore.clear();
+            return null;
+        }, v -> historyChanged(), e -> JOptionPane.showMessageDialog(this,
+                "Clear failed: " + e.getMessage(), "History", JOptionPane.WARNING_MESSAGE));
     }
 
     /* ==============================
      * 解析/工具
      * ============================== */
-    private static String jsonEscape(String s) {
-        if (s == null) return "";
-        return s.replace("\\", "\\\\").replace("\"", "\\\"");
-    }
-
-    private static String extractString(String json, String key) {
-        Pattern p = Pattern.compile("\"" + Pattern.quote(key) + "\"\\s*:\\s*\"(.*?)\"");
-        Matcher m = p.matcher(json);
-        if (m.find()) {
-            String v = m.group(1);
-            return v.replace("\\\"", "\"").replace("\\\\", "\\");
-        }
-        return "";
-    }
-
-    private static int extractInt(String json, String key, int def) {
-        Pattern p = Pattern.compile("\"" + Pattern.quote(key) + "\"\\s*:\\s*(-?\\d+)");
-        Matcher m = p.matcher(json);
-        if (m.find()) {
-            try {
-                return Integer.parseInt(m.group(1));
-            } catch (Exception ignore) {
-            }
-        }
-        return def;
-    }
-
-    private static boolean extractBool(String json, String key, boolean def) {
-        Pattern p = Pattern.compile("\"" + Pattern.quote(key) + "\"\\s*:\\s*(true|false)");
-        Matcher m = p.matcher(json);
-        if (m.find()) return Boolean.parseBoolean(m.group(1));
-        return def;
-    }
-
     private boolean computeTbAnyMalicious(Analyzer.ThreatBookResponse resp) {
         if (resp == null || resp.data == null) return false;
         boolean any = false;
@@ -2658,6 +2860,18 @@ public class WorkFrame extends JFrame {
         return computeTbAnyMalicious(resp) ? "malicious" : "clean";
     }
 
+    /** 从 conf.ini 读取一个整数配置；文件或键不存在时返回默认值 */
+    private static long readConfLong(String key, long def) {
+        Properties p = new Properties();
+        try (FileInputStream in = new FileInputStream(CONF_PATH)) {
+            p.load(in);
+            String v = p.getProperty(key);
+            return v == null || v.trim().isEmpty() ? def : Long.parseLong(v.trim());
+        } catch (Exception e) {
+            return def;
+        }
+    }
+
     /**
      * 若 conf.ini 不存在则写入一个默认模板
      */
@@ -2682,6 +2896,65 @@ public class WorkFrame extends JFrame {
             p.setProperty(KEY_PROXY_USER, "proxyuser");
             p.setProperty(KEY_PROXY_PASS, "123456");
 
+            // HttpClient 连接池（长连接复用）
+            p.setProperty("HTTP_POOL_SIZE", "16");
+            p.setProperty("HTTP_IDLE_TIMEOUT_SEC", "300");
+            // HTTP/2 多路复用（服务端不支持时回落 HTTP/1.1，可设为 HTTP_1_1）与 gzip 压缩响应
+            p.setProperty("HTTP_VERSION", "HTTP_2");
+            p.setProperty("HTTP_GZIP", "true");
+
+            // 查询结果缓存（条目上限 / 各情报源新鲜期，秒）
+            p.setProperty("CACHE_MAX_ENTRIES", "2000");
+            p.setProperty("CACHE_TTL_QAX_SEC", "1800");
+            p.setProperty("CACHE_TTL_VT_SEC", "3600");
+            p.setProperty("CACHE_TTL_TB_SEC", "1800");
+            p.setProperty("CACHE_TTL_IPQS_SEC", "900");
+
+            // 限流（每分钟请求数 / 每日配额，0 表示不限制）
+            p.setProperty("RATE_QAX_PER_MIN", "0");
+            p.setProperty("RATE_VT_PER_MIN", "4");
+            p.setProperty("QUOTA_VT_PER_DAY", "500");
+            p.setProperty("RATE_TB_PER_MIN", "60");
+            p.setProperty("RATE_IPQS_PER_MIN", "60");
+            p.setProperty("RATE_MAX_WAIT_SEC", "600");
+
+            // 瞬时失败重试（429/502/503/504、超时、连接重置）
+            p.setProperty("RETRY_MAX_ATTEMPTS", "3");
+            p.setProperty("RETRY_BASE_MS", "500");
+            p.setProperty("RETRY_MAX_DELAY_MS", "8000");
+            p.setProperty("RETRY_BUDGET_MS", "30000");
+
+            // 熔断（连续失败次数 / p90 耗时上限 / 熔断持续秒数）
+            p.setProperty("CB_FAILURE_THRESHOLD", "5");
+            p.setProperty("CB_SLOW_MS", "8000");
+            p.setProperty("CB_WINDOW", "20");
+            p.setProperty("CB_OPEN_SEC", "30");
+
+            // 对冲请求：超过 p90 仍未返回时再发一个（启用的情报源，逗号分隔，空 = 关闭；预算为普通请求的百分比）
+            p.setProperty("HEDGE_PROVIDERS", "");
+            p.setProperty("HEDGE_BUDGET_PERCENT", "10");
+            p.setProperty("HEDGE_MIN_DELAY_MS", "200");
+
+            // 查询执行器：总并发 / 每个情报源的并发上限
+            p.setProperty("LOOKUP_MAX_CONCURRENCY", "32");
+            p.setProperty("LOOKUP_BULKHEAD", "8");
+
+            // 检索截止时间（毫秒）：到点即结束忙碌状态，迟到的结果随后补充
+            p.setProperty("SEARCH_DEADLINE_MS", "8000");
+
+            // QAX 批量接口每次请求的指标数上限（CheckUrls / compromise；compromise 默认逐个请求）
+            p.setProperty("QAX_CHECKURLS_BATCH", "50");
+            p.setProperty("QAX_COMPROMISE_BATCH", "1");
+
+            // 微批：同一批量接口在窗口内到达的查询合并为一次请求（窗口毫秒，0 = 关闭 / 每批上限）
+            p.setProperty("MICROBATCH_WINDOW_MS", "5");
+            p.setProperty("MICROBATCH_MAX_ITEMS", "100");
+
+            // 磁盘缓存（追加写段文件，重启后仍可命中；超过上限自动压缩）
+            p.setProperty("DISK_CACHE_ENABLED", "true");
+            p.setProperty("DISK_CACHE_PATH", "verdicts.dat");
+            p.setProperty("DISK_CACHE_MAX_MB", "64");
+
             try (FileOutputStream out = new FileOutputStream(f)) {
                 p.store(out, "VirusTool API Keys (QAX/VT/TB/IPQS) & HTTP Proxy");
             }